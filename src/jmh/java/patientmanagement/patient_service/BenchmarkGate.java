@@ -0,0 +1,88 @@
+package patientmanagement.patient_service;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Compares a JMH JSON result against a baseline result and exits non-zero when
+ * any benchmark got slower, or allocates more per operation, by more than the
+ * tolerance. Without a baseline it only prints the summary.
+ *
+ * <pre>BenchmarkGate &lt;result.json&gt; &lt;tolerance, e.g. 0.10&gt; [baseline.json]</pre>
+ */
+public class BenchmarkGate {
+    private static final String ALLOCATION = "gc.alloc.rate.norm";
+
+    record Result(String mode, double score, String unit, double bytesPerOp) {
+    }
+
+    public static void main(String[] args) throws IOException {
+        var results = read(new File(args[0]));
+        var tolerance = Double.parseDouble(args[1]);
+        results.forEach((name, result) -> System.out.printf("%-90s %12.3f %-8s %12.1f B/op%n",
+                name, result.score(), result.unit(), result.bytesPerOp()));
+        if (args.length < 3 || args[2].isBlank()) {
+            System.out.println("No baseline given (-Djmh.baseline), regression gate skipped");
+            return;
+        }
+
+        var baseline = read(new File(args[2]));
+        var regressions = 0;
+        for (var entry : results.entrySet()) {
+            var before = baseline.get(entry.getKey());
+            if (before == null) {
+                continue;
+            }
+            var after = entry.getValue();
+            // avgt/sample/ss: lower is better; thrpt: higher is better
+            var slowdown = after.mode().equals("thrpt")
+                    ? before.score() / after.score() - 1
+                    : after.score() / before.score() - 1;
+            var allocationGrowth = before.bytesPerOp() > 0
+                    ? after.bytesPerOp() / before.bytesPerOp() - 1
+                    : 0;
+            if (slowdown > tolerance || allocationGrowth > tolerance) {
+                regressions++;
+                System.out.printf("REGRESSION %s: time %+.1f%%, allocation %+.1f%%%n",
+                        entry.getKey(), slowdown * 100, allocationGrowth * 100);
+            }
+        }
+        if (regressions > 0) {
+            System.out.println(regressions + " benchmark(s) regressed by more than " + tolerance * 100 + "%");
+            System.exit(1);
+        }
+        System.out.println("No regressions beyond " + tolerance * 100 + "%");
+    }
+
+    private static Map<String, Result> read(File file) throws IOException {
+        var results = new LinkedHashMap<String, Result>();
+        for (JsonNode run : new ObjectMapper().readTree(file)) {
+            var params = run.path("params");
+            var name = run.path("benchmark").asText();
+            if (!params.isMissingNode()) {
+                name += params.properties().stream()
+                        .map(p -> p.getKey() + "=" + p.getValue().asText())
+                        .collect(Collectors.joining(",", "[", "]"));
+            }
+            var primary = run.path("primaryMetric");
+            var bytesPerOp = 0.0;
+            for (var secondary : run.path("secondaryMetrics").properties()) {
+                if (secondary.getKey().endsWith(ALLOCATION)) {
+                    bytesPerOp = secondary.getValue().path("score").asDouble();
+                }
+            }
+            results.put(name, new Result(
+                    run.path("mode").asText(),
+                    primary.path("score").asDouble(),
+                    primary.path("scoreUnit").asText(),
+                    bytesPerOp));
+        }
+        return results;
+    }
+}
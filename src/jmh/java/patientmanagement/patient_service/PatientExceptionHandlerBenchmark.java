@@ -0,0 +1,65 @@
+package patientmanagement.patient_service;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.FieldError;
+import org.springframework.web.bind.MethodArgumentNotValidException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Error responses, excluding the cost of building the exception itself.
+ * Logging is switched off (src/jmh/resources/logback-test.xml) so appender I/O
+ * does not drown the handler.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class PatientExceptionHandlerBenchmark {
+    private PatientExceptionHandler handler;
+    private PatientNotFoundException notFound;
+    private MethodArgumentNotValidException notValid;
+
+    @Setup
+    public void setup() throws NoSuchMethodException {
+        handler = new PatientExceptionHandler(new SimpleMeterRegistry());
+        notFound = new PatientNotFoundException(UUID.randomUUID().toString());
+        var bindingResult = new BeanPropertyBindingResult(new Object(), "patientRequestDTO");
+        bindingResult.addError(new FieldError("patientRequestDTO", "name", PatientsConstants.NAME_BLANK));
+        bindingResult.addError(new FieldError("patientRequestDTO", "email", PatientsConstants.EMAIL_INVALID));
+        var parameter = new MethodParameter(
+                PatientExceptionHandlerBenchmark.class.getDeclaredMethod("target", PatientRequestDTO.class), 0);
+        notValid = new MethodArgumentNotValidException(parameter, bindingResult);
+    }
+
+    @Benchmark
+    public ResponseEntity<Map<String, String>> handleNotFound() {
+        return handler.handleEmailAlreadyExistsException(notFound);
+    }
+
+    @Benchmark
+    public ResponseEntity<Map<String, String>> handleValidationErrors() {
+        return handler.handleValidationExceptions(notValid);
+    }
+
+    void target(PatientRequestDTO patientRequestDTO) { // MethodParameter for notValid
+    }
+}
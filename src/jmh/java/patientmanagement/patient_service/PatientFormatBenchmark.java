@@ -0,0 +1,84 @@
+package patientmanagement.patient_service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * A 10k patient list in each negotiable format, with and without the gzip
+ * the server applies to large responses. The payload size of every variant is
+ * printed at setup, the score is the serialization (and compression) time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class PatientFormatBenchmark {
+    private static final int SIZE = 10_000;
+
+    @Param({ "json", "cbor", "smile" })
+    public String format;
+
+    @Param({ "false", "true" })
+    public boolean gzip;
+
+    private ObjectWriter listWriter;
+    private List<PatientResponseDTO> patients;
+
+    @Setup
+    public void setup() throws IOException {
+        ObjectMapper objectMapper = switch (format) {
+            case "cbor" -> Jackson2ObjectMapperBuilder.cbor().build();
+            case "smile" -> Jackson2ObjectMapperBuilder.smile().build();
+            default -> Jackson2ObjectMapperBuilder.json().build();
+        };
+        listWriter = objectMapper.writerFor(objectMapper.getTypeFactory()
+                .constructCollectionType(List.class, PatientResponseDTO.class));
+        patients = IntStream.range(0, SIZE)
+                .mapToObj(i -> new PatientResponseDTO(
+                        UUID.randomUUID(),
+                        "Patient " + i,
+                        "patient." + i + "@example.com",
+                        i + " Mobin St., Crowsand",
+                        LocalDate.of(1950, 1, 1).plusDays(i),
+                        LocalDate.of(2020, 1, 1).plusDays(i)))
+                .toList();
+        System.out.printf("%n%s%s: %,d bytes for %,d patients%n",
+                format, gzip ? "+gzip" : "", serializePatientList().length, SIZE);
+    }
+
+    @Benchmark
+    public byte[] serializePatientList() throws IOException {
+        if (!gzip) {
+            return listWriter.writeValueAsBytes(patients);
+        }
+        var bytes = new ByteArrayOutputStream();
+        try (var out = new GZIPOutputStream(bytes)) {
+            listWriter.writeValue(out, patients);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,82 @@
+package patientmanagement.patient_service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * Jackson as configured for Spring MVC: list responses of {@code size}
+ * patients, and a request with its {@code @JsonFormat} dates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class PatientJsonBenchmark {
+    @Param({ "1", "100", "1000" })
+    public int size;
+
+    private ObjectWriter listWriter;
+    private ObjectReader requestReader;
+    private List<PatientResponseDTO> patients;
+    private byte[] request;
+
+    @Setup
+    public void setup() {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        listWriter = objectMapper.writerFor(objectMapper.getTypeFactory()
+                .constructCollectionType(List.class, PatientResponseDTO.class));
+        requestReader = objectMapper.readerFor(PatientRequestDTO.class);
+        patients = IntStream.range(0, size)
+                .mapToObj(i -> new PatientResponseDTO(
+                        UUID.randomUUID(),
+                        "Patient " + i,
+                        "patient." + i + "@example.com",
+                        i + " Mobin St., Crowsand",
+                        LocalDate.of(1950, 1, 1).plusDays(i),
+                        LocalDate.of(2020, 1, 1).plusDays(i)))
+                .toList();
+        request = """
+                {
+                  "name": "Blue Sayama",
+                  "email": "blue.sayama@example.com",
+                  "address": "112 Mobin St., Crowsand",
+                  "dateOfBirth": "1992-09-15",
+                  "dateOfRegistration": "2024-11-07"
+                }
+                """.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] serializePatientList() throws IOException {
+        return listWriter.writeValueAsBytes(patients);
+    }
+
+    @Benchmark
+    public PatientRequestDTO deserializePatientRequest() throws IOException {
+        return requestReader.readValue(request);
+    }
+}
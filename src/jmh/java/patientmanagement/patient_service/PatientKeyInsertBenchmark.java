@@ -0,0 +1,124 @@
+package patientmanagement.patient_service;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Sustained batched inserts into a primary key that already holds {@code rows}
+ * keys, random v4 against time-ordered v7. The score is rows per second; the
+ * primary key index size and the WAL written per inserted row are printed at
+ * the end of each trial.
+ * Needs a Postgres database, the compose.yaml one unless overridden with
+ * -jvmArgsAppend "-Dbench.jdbc.url=... -Dbench.jdbc.username=... -Dbench.jdbc.password=...",
+ * so it is left out of the default run: -Djmh.args="PatientKeyInsertBenchmark".
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 5, time = 10)
+public class PatientKeyInsertBenchmark {
+    private static final int BATCH = 1_000;
+
+    @Param({ "v4", "v7" })
+    public String key;
+
+    @Param({ "1000000" })
+    public int rows;
+
+    private Connection connection;
+    private PreparedStatement insert;
+    private String table;
+    private long walBefore;
+    private long inserted;
+
+    @Setup(Level.Trial)
+    public void setup() throws SQLException {
+        connection = DriverManager.getConnection(
+                System.getProperty("bench.jdbc.url", "jdbc:postgresql://localhost:65432/patients")
+                        + "?reWriteBatchedInserts=true",
+                System.getProperty("bench.jdbc.username", "myuser"),
+                System.getProperty("bench.jdbc.password", "secret"));
+        table = "patient_key_bench_" + key;
+        try (var statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS " + table);
+            statement.execute("CREATE TABLE " + table + " (id UUID PRIMARY KEY, name VARCHAR(255) NOT NULL, "
+                    + "address VARCHAR(255) NOT NULL)");
+        }
+        connection.setAutoCommit(false);
+        insert = connection.prepareStatement("INSERT INTO " + table + " (id, name, address) VALUES (?, ?, ?)");
+        while (inserted < rows) {
+            insertBatch();
+        }
+        try (var statement = connection.createStatement()) {
+            connection.setAutoCommit(true);
+            statement.execute("VACUUM ANALYZE " + table);
+            connection.setAutoCommit(false);
+        }
+        System.out.printf("%n%s: prefilled %,d rows, primary key %,d bytes%n", key, inserted, indexSize());
+        walBefore = walPosition();
+        inserted = 0;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void insertBatch() throws SQLException {
+        for (int i = 0; i < BATCH; i++) {
+            insert.setObject(1, "v7".equals(key) ? UuidV7Generator.next() : UUID.randomUUID());
+            insert.setString(2, "Patient " + inserted);
+            insert.setString(3, inserted + " Mobin St., Crowsand");
+            insert.addBatch();
+            inserted++;
+        }
+        insert.executeBatch();
+        connection.commit();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        var indexSize = indexSize();
+        System.out.printf("%n%s: inserted %,d rows, primary key %,d bytes (%.1f per row), %,.0f bytes of WAL per row%n",
+                key, inserted, indexSize, (double) indexSize / (rows + inserted),
+                (double) (walPosition() - walBefore) / inserted);
+        try (var statement = connection.createStatement()) {
+            statement.execute("DROP TABLE " + table);
+        }
+        connection.commit();
+        connection.close();
+    }
+
+    private long indexSize() throws SQLException {
+        return queryLong("SELECT pg_relation_size('" + table + "_pkey')");
+    }
+
+    private long walPosition() throws SQLException {
+        return queryLong("SELECT pg_wal_lsn_diff(pg_current_wal_lsn(), '0/0')::bigint");
+    }
+
+    private long queryLong(String sql) throws SQLException {
+        try (var statement = connection.createStatement(); var result = statement.executeQuery(sql)) {
+            result.next();
+            return result.getLong(1);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package patientmanagement.patient_service;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class PatientMappingBenchmark {
+    private Patient patient;
+
+    @Setup
+    public void setup() {
+        patient = new Patient(
+                "Blue Sayama",
+                "blue.sayama@example.com",
+                "112 Mobin St., Crowsand",
+                LocalDate.of(1992, 9, 15),
+                LocalDate.of(2024, 11, 7));
+    }
+
+    @Benchmark
+    public PatientResponseDTO toResponseDTO() {
+        return patient.toResponseDTO();
+    }
+}
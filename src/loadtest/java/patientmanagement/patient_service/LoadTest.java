@@ -0,0 +1,405 @@
+package patientmanagement.patient_service;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.convert.DurationStyle;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Open-model HTTP load test of the patient API. Requests are started at a fixed
+ * arrival rate whether or not earlier ones have answered, each on its own virtual
+ * thread, and response time is measured from when a request was due rather than
+ * when it was sent: a stalled service shows up in the percentiles instead of
+ * quietly lowering the load (coordinated omission). The time from sending is
+ * reported alongside as service time.
+ * <p>
+ * Boots the packaged application (or targets a running one by URL), seeds it with
+ * synthetic patients through /batch, warms up, measures, and exits non-zero when a
+ * response time percentile or the error rate is over its threshold.
+ *
+ * <pre>LoadTest &lt;application.jar | http://host:port&gt; &lt;requests/s&gt; &lt;warmup&gt; &lt;duration&gt; &lt;patients&gt;
+ *         &lt;mix, e.g. get=60,patch=40&gt; &lt;thresholds, e.g. p99=100ms,errors=0.1%&gt; [application args...]</pre>
+ */
+public class LoadTest {
+    private static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(2);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static final String API = "/api/v1/patients";
+    private static final String MERGE_PATCH_JSON = "application/merge-patch+json";
+    private static final int SEED_BATCH_SIZE = 1000;
+    private static final int LOOKUP_SIZE = 20;
+    private static final int CLIENTS = 100; // distinct X-Client-Id values, so per-client admission limits (if enabled) see a crowd
+    private static final String[] SYLLABLES = { "ka", "lo", "mi", "su", "ra", "ne", "to", "vi", "de", "pa" };
+
+    enum Operation {
+        GET, BY_EMAIL, LIST, SEARCH, LOOKUP, CREATE, PATCH;
+
+        String label() {
+            return name().toLowerCase(Locale.ROOT).replace('_', '-');
+        }
+    }
+
+    record Patient(String id, String name, String email) {
+    }
+
+    record Stats(Histogram responseTime, Histogram serviceTime, LongAdder errors) {
+        Stats() {
+            this(new ConcurrentHistogram(3), new ConcurrentHistogram(3), new LongAdder());
+        }
+    }
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong created = new AtomicLong();
+    private final Map<Operation, Stats> stats = new EnumMap<>(Operation.class);
+    private final Map<String, Integer> errorStatuses = new ConcurrentHashMap<>();
+    private final String baseUrl;
+    private final Operation[] mix;
+    private List<Patient> patients;
+
+    LoadTest(String baseUrl, Operation[] mix) {
+        this.baseUrl = baseUrl;
+        this.mix = mix;
+        for (var operation : Operation.values()) {
+            stats.put(operation, new Stats());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        var target = args[0];
+        var rate = Double.parseDouble(args[1]);
+        var warmup = DurationStyle.detectAndParse(args[2]);
+        var duration = DurationStyle.detectAndParse(args[3]);
+        var patientCount = Integer.parseInt(args[4]);
+        var mix = parseMix(args[5]);
+        var thresholds = parseThresholds(args[6]);
+        var applicationArgs = Arrays.asList(args).subList(7, args.length);
+
+        Process application = null;
+        var baseUrl = target;
+        if (!target.startsWith("http")) {
+            var port = freePort();
+            baseUrl = "http://localhost:" + port;
+            application = start(new File(target).getAbsoluteFile(), port, applicationArgs);
+        }
+        boolean passed;
+        try {
+            var loadTest = new LoadTest(baseUrl, mix);
+            loadTest.awaitReady();
+            loadTest.seed(patientCount);
+            System.out.printf("Warming up for %s at %.0f requests/s%n", warmup, rate);
+            loadTest.run(rate, warmup, false);
+            System.out.printf("Measuring for %s at %.0f requests/s%n", duration, rate);
+            var seconds = loadTest.run(rate, duration, true);
+            var total = loadTest.report(seconds);
+            passed = loadTest.passes(total, thresholds);
+        } finally {
+            if (application != null) {
+                application.destroy();
+                application.waitFor();
+            }
+        }
+        // Only after the finally block: exiting inside it would leave the booted application running
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+
+    // Schedule is fixed up front: request i is due at start + i / rate, however late the previous ones are
+    private double run(double rate, Duration duration, boolean record) {
+        var interval = 1e9 / rate;
+        var start = System.nanoTime();
+        var end = start + duration.toNanos();
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long i = 0;; i++) {
+                var due = start + (long) (i * interval);
+                if (due >= end) {
+                    break;
+                }
+                var wait = due - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                var operation = mix[ThreadLocalRandom.current().nextInt(mix.length)];
+                var clientId = "loadtest-" + i % CLIENTS;
+                executor.execute(() -> send(operation, clientId, due, record));
+            }
+        } // waits for the requests still in flight
+        return duration.toNanos() / 1e9;
+    }
+
+    private void send(Operation operation, String clientId, long due, boolean record) {
+        var request = request(operation).header("X-Client-Id", clientId).build();
+        var sent = System.nanoTime();
+        int status;
+        try {
+            status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (IOException e) {
+            status = 0;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        var done = System.nanoTime();
+        if (record) {
+            var operationStats = stats.get(operation);
+            operationStats.responseTime().recordValue((done - due) / 1000);
+            operationStats.serviceTime().recordValue((done - sent) / 1000);
+            if (status < 200 || status >= 300) {
+                operationStats.errors().increment();
+                errorStatuses.merge(operation.label() + " " + (status == 0 ? "I/O error" : status), 1, Integer::sum);
+            }
+        }
+    }
+
+    private HttpRequest.Builder request(Operation operation) {
+        var random = ThreadLocalRandom.current();
+        var patient = patients.get(random.nextInt(patients.size()));
+        return switch (operation) {
+            case GET -> get("/" + patient.id());
+            case BY_EMAIL -> get("/by-email?email=" + URLEncoder.encode(patient.email(), StandardCharsets.UTF_8));
+            case LIST -> get("?size=50");
+            case SEARCH -> get("/search?q=" + patient.name().substring(patient.name().indexOf(' ') + 1));
+            case LOOKUP -> post("/lookup", "application/json", json(Map.of("ids", random
+                    .ints(LOOKUP_SIZE, 0, patients.size())
+                    .mapToObj(i -> patients.get(i).id())
+                    .toList())));
+            case CREATE -> post("", "application/json", json(newPatient("c" + created.incrementAndGet())));
+            case PATCH -> HttpRequest.newBuilder(uri("/" + patient.id()))
+                    .method("PATCH", HttpRequest.BodyPublishers.ofString(
+                            json(Map.of("address", random.nextInt(1000) + " Moved St., Springfield"))))
+                    .header("Content-Type", MERGE_PATCH_JSON)
+                    .timeout(REQUEST_TIMEOUT);
+        };
+    }
+
+    private void seed(int count) throws IOException, InterruptedException {
+        var started = System.nanoTime();
+        patients = new ArrayList<>(count);
+        for (var from = 0; from < count; from += SEED_BATCH_SIZE) {
+            var batch = new ArrayList<Map<String, String>>();
+            for (var n = from; n < Math.min(count, from + SEED_BATCH_SIZE); n++) {
+                batch.add(newPatient("s" + n));
+            }
+            var response = client.send(post("/batch", "application/json", json(batch))
+                    .header("X-Client-Id", "loadtest-seed-" + from / SEED_BATCH_SIZE % CLIENTS)
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("Seeding failed with " + response.statusCode() + ": "
+                        + response.body());
+            }
+            for (JsonNode result : objectMapper.readTree(response.body())) {
+                var patient = result.path("patient");
+                if (!patient.isMissingNode() && !patient.isNull()) {
+                    patients.add(new Patient(patient.path("id").asText(), patient.path("name").asText(),
+                            patient.path("email").asText()));
+                }
+            }
+        }
+        System.out.printf("Seeded %d patients in %d ms%n",
+                patients.size(), Duration.ofNanos(System.nanoTime() - started).toMillis());
+    }
+
+    private Histogram report(double seconds) {
+        var total = new Histogram(3);
+        var totalService = new Histogram(3);
+        var totalErrors = 0L;
+        System.out.printf("%-10s %9s %9s %8s %10s %10s %10s %10s %14s%n",
+                "operation", "requests", "req/s", "errors", "p50 (ms)", "p99 (ms)", "p99.9 (ms)", "max (ms)",
+                "p99 sent (ms)");
+        for (var entry : stats.entrySet()) {
+            var operationStats = entry.getValue();
+            if (operationStats.responseTime().getTotalCount() > 0) {
+                print(entry.getKey().label(), operationStats.responseTime(), operationStats.serviceTime(),
+                        operationStats.errors().sum(), seconds);
+                total.add(operationStats.responseTime());
+                totalService.add(operationStats.serviceTime());
+                totalErrors += operationStats.errors().sum();
+            }
+        }
+        print("total", total, totalService, totalErrors, seconds);
+        errorStatuses.forEach((status, count) -> System.out.printf("  %d x %s%n", count, status));
+        return total;
+    }
+
+    private static void print(String label, Histogram responseTime, Histogram serviceTime, long errors,
+            double seconds) {
+        System.out.printf("%-10s %9d %9.1f %8d %10.1f %10.1f %10.1f %10.1f %14.1f%n",
+                label,
+                responseTime.getTotalCount(),
+                responseTime.getTotalCount() / seconds,
+                errors,
+                responseTime.getValueAtPercentile(50) / 1000.0,
+                responseTime.getValueAtPercentile(99) / 1000.0,
+                responseTime.getValueAtPercentile(99.9) / 1000.0,
+                responseTime.getMaxValue() / 1000.0,
+                serviceTime.getValueAtPercentile(99) / 1000.0);
+    }
+
+    private boolean passes(Histogram total, Map<String, Double> thresholds) {
+        var breaches = 0;
+        for (var threshold : thresholds.entrySet()) {
+            var name = threshold.getKey();
+            var limit = threshold.getValue();
+            double actual;
+            if (name.equals("errors")) {
+                var errors = stats.values().stream().mapToLong(s -> s.errors().sum()).sum();
+                actual = (double) errors / Math.max(1, total.getTotalCount());
+            } else {
+                actual = total.getValueAtPercentile(Double.parseDouble(name.substring(1))) / 1000.0;
+            }
+            if (actual > limit) {
+                breaches++;
+                System.out.printf("THRESHOLD %s: %.4f over %.4f%n", name, actual, limit);
+            }
+        }
+        if (breaches > 0) {
+            System.out.println(breaches + " threshold(s) exceeded");
+            return false;
+        }
+        System.out.println("All thresholds met: " + thresholds);
+        return true;
+    }
+
+    private void awaitReady() throws InterruptedException {
+        var health = HttpRequest.newBuilder(URI.create(baseUrl + "/actuator/health"))
+                .timeout(Duration.ofSeconds(1))
+                .build();
+        var started = System.nanoTime();
+        while (System.nanoTime() - started < STARTUP_TIMEOUT.toNanos()) {
+            try {
+                if (client.send(health, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                // not listening yet
+            }
+            Thread.sleep(100);
+        }
+        throw new IllegalStateException(baseUrl + " did not become healthy within " + STARTUP_TIMEOUT);
+    }
+
+    private static Process start(File jar, int port, List<String> applicationArgs) throws IOException {
+        var log = new File(jar.getParentFile(), "loadtest-application.log");
+        var command = new ArrayList<>(List.of(
+                Path.of(System.getProperty("java.home"), "bin", "java").toString(), "-jar", jar.getPath()));
+        command.addAll(applicationArgs);
+        command.add("--server.port=" + port);
+        System.out.println("Starting " + jar.getName() + ", log in " + log);
+        Files.createDirectories(log.getParentFile().toPath());
+        return new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(log).start();
+    }
+
+    private Map<String, String> newPatient(String key) {
+        var n = Math.abs(key.hashCode());
+        var email = "loadtest." + runId + "." + key + "@example.com";
+        return Map.of(
+                "name", word(n % 1000) + " " + word(n / 1000 % 1000),
+                "email", email,
+                "address", n % 997 + " " + word(n % 100) + " St., Springfield",
+                "dateOfBirth", "19" + (50 + n % 50) + "-0" + (1 + n % 9) + "-1" + n % 10);
+    }
+
+    // three syllables per 0..999, so a last name matches about one patient in a thousand
+    private static String word(int n) {
+        var word = SYLLABLES[n / 100 % 10] + SYLLABLES[n / 10 % 10] + SYLLABLES[n % 10];
+        return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+    }
+
+    private HttpRequest.Builder get(String path) {
+        return HttpRequest.newBuilder(uri(path)).GET().timeout(REQUEST_TIMEOUT);
+    }
+
+    private HttpRequest.Builder post(String path, String contentType, String body) {
+        return HttpRequest.newBuilder(uri(path))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .header("Content-Type", contentType)
+                .timeout(REQUEST_TIMEOUT);
+    }
+
+    private URI uri(String path) {
+        return URI.create(baseUrl + API + path);
+    }
+
+    private String json(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // get=60,patch=40 becomes a 100 slot table, picking a random slot follows the weights
+    private static Operation[] parseMix(String mix) {
+        var slots = new ArrayList<Operation>();
+        for (var part : mix.split(",")) {
+            var weighted = part.strip().split("=");
+            var operation = Arrays.stream(Operation.values())
+                    .filter(o -> o.label().equals(weighted[0].strip()))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("Unknown operation " + weighted[0]
+                            + ", expected one of " + Arrays.stream(Operation.values()).map(Operation::label).toList()));
+            for (var i = 0; i < Integer.parseInt(weighted[1].strip()); i++) {
+                slots.add(operation);
+            }
+        }
+        return slots.toArray(Operation[]::new);
+    }
+
+    // p99=100ms,p99.9=1s,errors=0.1% in milliseconds and as a fraction
+    private static Map<String, Double> parseThresholds(String thresholds) {
+        var parsed = new LinkedHashMap<String, Double>();
+        for (var part : thresholds.split(",")) {
+            var threshold = part.strip().split("=");
+            var name = threshold[0].strip();
+            var value = threshold[1].strip();
+            if (name.equals("errors")) {
+                parsed.put(name, value.endsWith("%")
+                        ? Double.parseDouble(value.substring(0, value.length() - 1)) / 100
+                        : Double.parseDouble(value));
+            } else if (name.matches("p\\d+(\\.\\d+)?")) {
+                parsed.put(name, (double) DurationStyle.detectAndParse(value).toNanos() / 1_000_000);
+            } else {
+                throw new IllegalArgumentException("Unknown threshold " + name + ", expected pNN or errors");
+            }
+        }
+        return parsed;
+    }
+
+    private static int freePort() throws IOException {
+        try (var socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
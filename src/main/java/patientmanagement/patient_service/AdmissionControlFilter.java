@@ -0,0 +1,143 @@
+package patientmanagement.patient_service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Admission control for the API. Each client (the client id header, else the
+ * remote address) gets separate read and write token buckets and is answered
+ * 429 once it spends them. Past that, requests in flight across all clients
+ * are capped and the excess is shed with 503, so a pile-up waits at the door
+ * instead of in the connection pool queue. Both carry Retry-After. Off unless
+ * enabled: the client id header is whatever the caller sends, so it is only an
+ * identity behind a gateway that sets it and drops any sent by the client.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10) // after the observation filter, so rejections show in http.server.requests
+@ConditionalOnProperty(name = "patients.admission.enabled", havingValue = "true")
+class AdmissionControlFilter extends OncePerRequestFilter {
+    private static final Logger log = LoggerFactory.getLogger(AdmissionControlFilter.class);
+    private static final Set<String> READ_METHODS = Set.of("GET", "HEAD", "OPTIONS");
+    private static final String LOOKUP_PATH = "/patients/lookup";
+    private static final Duration IDLE_CLIENT_EXPIRY = Duration.ofMinutes(10);
+    private static final long MAX_TRACKED_CLIENTS = 100_000;
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final String clientHeader;
+    private final double readsPerSecond;
+    private final int readBurst;
+    private final double writesPerSecond;
+    private final int writeBurst;
+    private final int maxInFlight;
+    private final Cache<String, TokenBucket> readBuckets = newBuckets();
+    private final Cache<String, TokenBucket> writeBuckets = newBuckets();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final MeterRegistry meterRegistry;
+    private final ObjectMapper objectMapper;
+
+    AdmissionControlFilter(
+            @Value("${patients.admission.client-header:X-Client-Id}") String clientHeader,
+            @Value("${patients.admission.reads-per-second:100}") double readsPerSecond,
+            @Value("${patients.admission.read-burst:200}") int readBurst,
+            @Value("${patients.admission.writes-per-second:20}") double writesPerSecond,
+            @Value("${patients.admission.write-burst:40}") int writeBurst,
+            @Value("${patients.admission.max-in-flight:64}") int maxInFlight,
+            MeterRegistry meterRegistry,
+            ObjectMapper objectMapper) {
+        this.clientHeader = clientHeader;
+        this.readsPerSecond = readsPerSecond;
+        this.readBurst = readBurst;
+        this.writesPerSecond = writesPerSecond;
+        this.writeBurst = writeBurst;
+        this.maxInFlight = maxInFlight;
+        this.meterRegistry = meterRegistry;
+        this.objectMapper = objectMapper;
+        Gauge.builder("patients.admission.in-flight", inFlight, AtomicInteger::get).register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        var read = isRead(request);
+        var kind = read ? "read" : "write";
+        var client = clientOf(request, clientHeader);
+        var now = System.nanoTime();
+        var bucket = read
+                ? readBuckets.get(client, key -> new TokenBucket(readsPerSecond, readBurst, now))
+                : writeBuckets.get(client, key -> new TokenBucket(writesPerSecond, writeBurst, now));
+        var wait = bucket.tryAcquire(now);
+        if (wait > 0) {
+            reject(response, HttpStatus.TOO_MANY_REQUESTS, "rate-limit", kind,
+                    Math.ceilDiv(wait, NANOS_PER_SECOND), "Too many " + kind + "s from " + client);
+            return;
+        }
+        if (inFlight.incrementAndGet() > maxInFlight) {
+            inFlight.decrementAndGet();
+            reject(response, HttpStatus.SERVICE_UNAVAILABLE, "overload", kind, 1, "Service busy, retry later");
+            return;
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    // POST /lookup only carries its keys in the body
+    static boolean isRead(HttpServletRequest request) {
+        return READ_METHODS.contains(request.getMethod()) || request.getRequestURI().endsWith(LOOKUP_PATH);
+    }
+
+    static String clientOf(HttpServletRequest request, String clientHeader) {
+        var clientId = request.getHeader(clientHeader);
+        return clientId == null || clientId.isBlank() ? request.getRemoteAddr() : clientId;
+    }
+
+    private void reject(HttpServletResponse response, HttpStatus status, String reason, String kind,
+            long retryAfterSeconds, String message) throws IOException {
+        meterRegistry.counter("patients.admission.rejected", "reason", reason, "kind", kind).increment();
+        log.debug("Error ({}): {}", status.value(), message);
+        response.setStatus(status.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), Map.of("message", message));
+    }
+
+    private static Cache<String, TokenBucket> newBuckets() {
+        return Caffeine.newBuilder()
+                .maximumSize(MAX_TRACKED_CLIENTS)
+                .expireAfterAccess(IDLE_CLIENT_EXPIRY)
+                .build();
+    }
+}
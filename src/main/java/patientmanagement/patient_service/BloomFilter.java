@@ -0,0 +1,79 @@
+package patientmanagement.patient_service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe Bloom filter of strings, sized for an expected number of entries
+ * at a target false positive rate. The k bit positions come from two halves of
+ * one 64-bit hash (Kirsch-Mitzenmacher double hashing).
+ */
+class BloomFilter {
+    private final AtomicLongArray words;
+    private final long bits;
+    private final int hashes;
+    private final AtomicLong bitsSet = new AtomicLong();
+
+    BloomFilter(long expectedEntries, double falsePositiveRate) {
+        var n = Math.max(1, expectedEntries);
+        var m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        if (m > Integer.MAX_VALUE - 63) {
+            throw new IllegalArgumentException(m + " bits needed, at most " + Integer.MAX_VALUE + " supported");
+        }
+        this.words = new AtomicLongArray(Math.toIntExact((m + 63) / 64));
+        this.bits = words.length() * 64L;
+        this.hashes = Math.max(1, (int) Math.round((double) bits / n * Math.log(2)));
+    }
+
+    void put(String value) {
+        var hash = hash(value);
+        for (int i = 0; i < hashes; i++) {
+            var bit = index(hash, i);
+            var mask = 1L << bit;
+            if ((words.getAndAccumulate((int) (bit >>> 6), mask, (word, m) -> word | m) & mask) == 0) {
+                bitsSet.incrementAndGet();
+            }
+        }
+    }
+
+    boolean mightContain(String value) {
+        var hash = hash(value);
+        for (int i = 0; i < hashes; i++) {
+            var bit = index(hash, i);
+            if ((words.get((int) (bit >>> 6)) & 1L << bit) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Chance that an absent value is reported as present, from how full the bit set is. */
+    double expectedFalsePositiveRate() {
+        return Math.pow((double) bitsSet.get() / bits, hashes);
+    }
+
+    /** Entries it holds, estimated from the bits set (Swamidass-Baldi). */
+    long approximateEntries() {
+        return Math.round(-(double) bits / hashes * Math.log1p(-(double) bitsSet.get() / bits));
+    }
+
+    long sizeInBytes() {
+        return bits / 8;
+    }
+
+    private long index(long hash, int i) {
+        var combined = (int) hash + i * (int) (hash >>> 32);
+        return Integer.toUnsignedLong(combined) * bits >>> 32; // maps 32 bits into [0, bits) without a division
+    }
+
+    // FNV-1a over the chars, then the murmur3 finalizer to spread the bits
+    private static long hash(String value) {
+        var h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h = (h ^ value.charAt(i)) * 0x100000001b3L;
+        }
+        h = (h ^ h >>> 33) * 0xff51afd7ed558ccdL;
+        h = (h ^ h >>> 33) * 0xc4ceb93fe53e86ebL;
+        return h ^ h >>> 33;
+    }
+}
@@ -0,0 +1,7 @@
+package patientmanagement.patient_service;
+
+class DatabaseBusyException extends RuntimeException {
+    DatabaseBusyException(String errorMessage) {
+        super(errorMessage);
+    }
+}
@@ -0,0 +1,83 @@
+package patientmanagement.patient_service;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * With virtual threads there is no thread pool left to bound concurrency, so
+ * every request would queue on Hikari. This lets at most as many service calls
+ * in as there are pooled connections and fails fast with 503 once a caller has
+ * waited {@code patients.virtual-threads.permit-timeout}. Ordered outermost so
+ * no transaction (and no connection) is open while waiting. Single patient
+ * reads only take a permit on a cache miss, before entering the cache: waiting
+ * inside its synchronized compute would pin the virtual thread's carrier, and
+ * with few carriers the permit holders could then not run to give theirs back.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnThreading(Threading.VIRTUAL)
+class DatabaseConcurrencyLimiter {
+    private final Semaphore permits;
+    private final long timeoutNanos;
+
+    DatabaseConcurrencyLimiter(
+            @Value("${spring.datasource.hikari.maximum-pool-size:10}") int maximumPoolSize,
+            @Value("${patients.virtual-threads.permit-timeout:2s}") Duration timeout,
+            MeterRegistry meterRegistry) {
+        this.permits = new Semaphore(maximumPoolSize, true);
+        this.timeoutNanos = timeout.toNanos();
+        Gauge.builder("patients.db.permits.available", permits, Semaphore::availablePermits)
+                .description("Service calls that may still start without waiting")
+                .register(meterRegistry);
+        Gauge.builder("patients.db.permits.waiting", permits, Semaphore::getQueueLength)
+                .description("Service calls waiting for a permit")
+                .register(meterRegistry);
+    }
+
+    @Around("within(patientmanagement.patient_service.PatientService) && !execution(* getPatientBy*(..))")
+    Object limit(ProceedingJoinPoint joinPoint) throws Throwable {
+        acquire(joinPoint.getSignature().getName());
+        try {
+            return joinPoint.proceed();
+        } finally {
+            permits.release();
+        }
+    }
+
+    // For work that only sometimes needs a connection; must not be called while holding a lock
+    <T> T withPermit(String operation, Supplier<T> work) {
+        acquire(operation);
+        try {
+            return work.get();
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void acquire(String operation) {
+        try {
+            if (!permits.tryAcquire(timeoutNanos, TimeUnit.NANOSECONDS)) {
+                throw new DatabaseBusyException(operation);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DatabaseBusyException(operation);
+        }
+    }
+}
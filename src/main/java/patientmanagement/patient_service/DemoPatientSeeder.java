@@ -0,0 +1,39 @@
+package patientmanagement.patient_service;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Inserts the demo patients once Flyway is done (run with
+ * --spring.profiles.active=seed). Deliberately not a migration: nothing lands in
+ * the Flyway history, so the database still boots without the profile. The
+ * script skips patients that are already there.
+ */
+@Component
+@Profile("seed")
+class DemoPatientSeeder implements ApplicationRunner {
+    private static final Logger log = LoggerFactory.getLogger(DemoPatientSeeder.class);
+
+    private final DataSource dataSource;
+    private final PatientShards patientShards;
+
+    DemoPatientSeeder(DataSource dataSource, PatientShards patientShards) {
+        this.dataSource = dataSource;
+        this.patientShards = patientShards;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        patientShards.requireUnsharded("seed profile"); // the script writes to the primary only
+        new ResourceDatabasePopulator(new ClassPathResource("db/seed/seed_patients.sql")).execute(dataSource);
+        log.info("Seeded demo patients");
+    }
+}
@@ -0,0 +1,7 @@
+package patientmanagement.patient_service;
+
+class InvalidCursorException extends RuntimeException {
+    InvalidCursorException(String errorMessage) {
+        super(errorMessage);
+    }
+}
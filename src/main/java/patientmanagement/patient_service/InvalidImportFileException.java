@@ -0,0 +1,7 @@
+package patientmanagement.patient_service;
+
+class InvalidImportFileException extends RuntimeException {
+    InvalidImportFileException(String errorMessage) {
+        super(errorMessage);
+    }
+}
@@ -0,0 +1,7 @@
+package patientmanagement.patient_service;
+
+class InvalidPatchException extends RuntimeException {
+    InvalidPatchException(String errorMessage) {
+        super(errorMessage);
+    }
+}
@@ -0,0 +1,7 @@
+package patientmanagement.patient_service;
+
+class InvalidSearchQueryException extends RuntimeException {
+    InvalidSearchQueryException(String errorMessage) {
+        super(errorMessage);
+    }
+}
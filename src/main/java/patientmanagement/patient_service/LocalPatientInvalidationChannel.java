@@ -0,0 +1,25 @@
+package patientmanagement.patient_service;
+
+import java.util.Collection;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Single-node stand-in: the local cache already evicts on commit, so there is
+ * nobody else to tell.
+ */
+@Component
+@ConditionalOnProperty(name = "patients.cache.invalidation-channel", havingValue = "local")
+class LocalPatientInvalidationChannel implements PatientInvalidationChannel {
+
+    @Override
+    public void publish(Collection<UUID> patientIds) {
+    }
+
+    @Override
+    public void subscribe(Consumer<UUID> listener, Runnable missedSome) {
+    }
+}
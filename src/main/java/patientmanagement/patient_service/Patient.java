@@ -1,21 +1,24 @@
 package patientmanagement.patient_service;
 
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.UUID;
 
+import org.hibernate.annotations.UpdateTimestamp;
+
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Version;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 
 @Entity
 class Patient {
+    // Time-ordered for insert locality; existing random (v4) ids stay valid, they only sort differently
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @UuidV7
     private final UUID id;
 
     @NotNull
@@ -36,6 +39,13 @@ class Patient {
     @NotNull
     private final LocalDate dateOfRegistration;
 
+    // Bumped on every write, drives the ETag and If-Match checks
+    @Version
+    private Long version;
+
+    @UpdateTimestamp
+    private Instant lastModified;
+
     @Deprecated
     protected Patient() {
         this.id = null;
@@ -47,7 +57,12 @@ class Patient {
     } // for JPA
 
     Patient(String name, String email, String address, LocalDate dateOfBirth, LocalDate dateOfRegistration) {
-        this.id = null;
+        this(null, name, email, address, dateOfBirth, dateOfRegistration);
+    }
+
+    // With the id known up front, e.g. to pick the patient's shard before it is inserted
+    Patient(UUID id, String name, String email, String address, LocalDate dateOfBirth, LocalDate dateOfRegistration) {
+        this.id = id;
         this.name = name;
         this.email = email;
         this.address = address;
@@ -87,6 +102,14 @@ class Patient {
         return dateOfRegistration;
     }
 
+    Long getVersion() {
+        return version;
+    }
+
+    Instant getLastModified() {
+        return lastModified;
+    }
+
     PatientResponseDTO toResponseDTO() {
         return new PatientResponseDTO(
                 id,
@@ -94,6 +117,8 @@ class Patient {
                 email,
                 address,
                 dateOfBirth,
-                dateOfRegistration);
+                dateOfRegistration,
+                version,
+                lastModified);
     }
 }
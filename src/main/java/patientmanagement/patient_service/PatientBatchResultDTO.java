@@ -0,0 +1,22 @@
+package patientmanagement.patient_service;
+
+import java.util.List;
+
+record PatientBatchResultDTO(
+        int index,
+        Status status,
+        PatientResponseDTO patient,
+        List<String> errors) {
+
+    enum Status {
+        CREATED, INVALID, DUPLICATE_EMAIL, FAILED // FAILED: not stored, its shard's write failed; may be retried
+    }
+
+    static PatientBatchResultDTO created(int index, PatientResponseDTO patient) {
+        return new PatientBatchResultDTO(index, Status.CREATED, patient, List.of());
+    }
+
+    static PatientBatchResultDTO rejected(int index, Status status, List<String> errors) {
+        return new PatientBatchResultDTO(index, status, null, errors);
+    }
+}
@@ -0,0 +1,7 @@
+package patientmanagement.patient_service;
+
+class PatientBatchTooLargeException extends RuntimeException {
+    PatientBatchTooLargeException(String errorMessage) {
+        super(errorMessage);
+    }
+}
@@ -0,0 +1,4 @@
+package patientmanagement.patient_service;
+
+record PatientBulkDeleteResultDTO(int deleted) {
+}
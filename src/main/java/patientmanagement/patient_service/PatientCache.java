@@ -0,0 +1,156 @@
+package patientmanagement.patient_service;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Read-through cache for single patient lookups. Patients are cached by id;
+ * the email cache only maps an email to an id and is re-checked against the
+ * cached patient, so an email change never needs the old address to invalidate.
+ * A cold email lookup reads twice, once for the id and once under the id's
+ * entry, so only the second read, which invalidations are ordered with, is kept.
+ * Bulk loads read all misses at once, outside any entry, and are only kept if no
+ * invalidation happened since they started. Concurrent misses for one key share
+ * a single load, and absent patients are not cached.
+ */
+@Component
+class PatientCache {
+    private final Cache<UUID, PatientResponseDTO> byId;
+    private final Cache<String, UUID> byEmail;
+    private final PatientInvalidationChannel invalidationChannel;
+    private final AtomicLong invalidations = new AtomicLong(); // bumped before every eviction
+
+    PatientCache(
+            @Value("${patients.cache.maximum-size:10000}") long maximumSize,
+            @Value("${patients.cache.ttl:5m}") Duration ttl,
+            PatientInvalidationChannel invalidationChannel,
+            MeterRegistry meterRegistry) {
+        this.byId = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.byEmail = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.invalidationChannel = invalidationChannel;
+        invalidationChannel.subscribe(this::evict, this::evictEverything);
+        CaffeineCacheMetrics.monitor(meterRegistry, byId, "patients.by-id");
+        CaffeineCacheMetrics.monitor(meterRegistry, byEmail, "patients.by-email");
+    }
+
+    Optional<PatientResponseDTO> getById(UUID patientId, Function<UUID, Optional<PatientResponseDTO>> loader) {
+        return Optional.ofNullable(byId.get(patientId, id -> loader.apply(id).orElse(null)));
+    }
+
+    // Hits come from the cache, all misses go to the loader at once; absent ids are left out of the result
+    Map<UUID, PatientResponseDTO> getAllById(
+            Collection<UUID> patientIds,
+            Function<Set<? extends UUID>, Map<UUID, PatientResponseDTO>> loader) {
+        var found = new HashMap<>(byId.getAllPresent(patientIds));
+        var misses = patientIds.stream().filter(id -> !found.containsKey(id)).collect(Collectors.toSet());
+        if (misses.isEmpty()) {
+            return found;
+        }
+        var generation = invalidations.get();
+        loader.apply(misses).forEach((id, patient) -> {
+            found.put(id, patient);
+            // Under the entry's lock: an eviction either comes after this put, or bumped the counter before it
+            byId.asMap().compute(id, (key, cached) -> invalidations.get() == generation ? patient : cached);
+        });
+        return found;
+    }
+
+    Optional<PatientResponseDTO> getIfPresent(UUID patientId) {
+        return Optional.ofNullable(byId.getIfPresent(patientId));
+    }
+
+    Optional<PatientResponseDTO> getIfPresentByEmail(String email) {
+        var cachedId = byEmail.getIfPresent(email);
+        if (cachedId != null) {
+            var cached = byId.getIfPresent(cachedId);
+            if (cached != null && cached.email().equals(email)) {
+                return Optional.of(cached);
+            }
+            byEmail.invalidate(email); // patient evicted, deleted or moved to another email
+        }
+        return Optional.empty();
+    }
+
+    Optional<PatientResponseDTO> getByEmail(String email, Function<String, Optional<PatientResponseDTO>> loader) {
+        var cached = getIfPresentByEmail(email);
+        if (cached.isPresent()) {
+            return cached;
+        }
+        var patientId = byEmail.get(email, key -> loader.apply(key).map(PatientResponseDTO::id).orElse(null));
+        if (patientId == null) {
+            return Optional.empty();
+        }
+        // Cached only from a load under byId's per-key compute, which a racing invalidation waits for and then evicts
+        var patient = byId.get(patientId, id -> loader.apply(email).filter(p -> p.id().equals(id)).orElse(null));
+        if (patient == null) { // moved to another patient in between
+            byEmail.invalidate(email);
+            return loader.apply(email);
+        }
+        return Optional.of(patient);
+    }
+
+    void invalidate(UUID patientId) {
+        invalidateAll(List.of(patientId));
+    }
+
+    /**
+     * Evicts the patients here once the current transaction commits (or now, if
+     * there is none) and tells the other replicas through the invalidation channel.
+     */
+    void invalidateAll(Collection<UUID> patientIds) {
+        invalidationChannel.publish(patientIds);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictAll(patientIds);
+                }
+            });
+        } else {
+            evictAll(patientIds);
+        }
+    }
+
+    private void evict(UUID patientId) {
+        evictAll(List.of(patientId));
+    }
+
+    private void evictAll(Collection<UUID> patientIds) {
+        invalidations.incrementAndGet();
+        byId.invalidateAll(patientIds);
+    }
+
+    private void evictEverything() {
+        invalidations.incrementAndGet();
+        byId.invalidateAll();
+        byEmail.invalidateAll();
+    }
+}
@@ -0,0 +1,17 @@
+package patientmanagement.patient_service;
+
+import java.time.Instant;
+import java.util.UUID;
+
+// patient is the current state, null for a DELETED tombstone
+record PatientChangeDTO(
+        long sequence,
+        UUID patientId,
+        Operation operation,
+        Instant changedAt,
+        PatientResponseDTO patient) {
+
+    enum Operation {
+        CREATED, UPDATED, DELETED
+    }
+}
@@ -0,0 +1,176 @@
+package patientmanagement.patient_service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Pushes the change log to Server-Sent Events subscribers. A single poller reads
+ * from the position of the furthest behind subscriber and queues for every
+ * subscriber what it has not seen yet, so the database sees one query per tick no
+ * matter how many clients are connected. Each subscriber has its own virtual
+ * thread doing the blocking sends from a bounded backlog, so a slow client only
+ * slows itself; one whose backlog stays full for max-stall has fallen too far
+ * behind and is dropped. Event ids are positions, a client reconnecting with Last-Event-ID
+ * resumes where it left off.
+ */
+@Component
+@RegisterReflectionForBinding(PatientChangeDTO.class) // serialized outside handler return types, invisible to AOT
+class PatientChangeFeed implements SmartLifecycle {
+    private static final Logger log = LoggerFactory.getLogger(PatientChangeFeed.class);
+    private static final String EVENT_NAME = "patient-change";
+
+    // position: the last change queued; fullSince: System.nanoTime() the backlog was first found full, 0 if it was not
+    private record Subscriber(
+            SseEmitter emitter,
+            AtomicLong position,
+            BlockingQueue<PatientChangeDTO> backlog,
+            AtomicLong fullSince) {
+    }
+
+    private final PatientService patientService;
+    private final PatientShards patientShards;
+    private final Duration pollInterval;
+    private final Duration maxStall;
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService poller = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().daemon().name("patient-change-feed").factory());
+    private volatile boolean running;
+
+    PatientChangeFeed(
+            PatientService patientService,
+            PatientShards patientShards,
+            @Value("${patients.changes.poll-interval:1s}") Duration pollInterval,
+            @Value("${patients.changes.max-stall:30s}") Duration maxStall) {
+        this.patientService = patientService;
+        this.patientShards = patientShards;
+        this.pollInterval = pollInterval;
+        this.maxStall = maxStall;
+    }
+
+    @Override
+    public void start() {
+        poller.scheduleWithFixedDelay(this::poll, pollInterval.toMillis(), pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+        running = true;
+    }
+
+    // Runs before the web server's graceful shutdown, which would otherwise wait on every open stream
+    @Override
+    public void stop() {
+        running = false;
+        poller.shutdownNow();
+        subscribers.forEach(subscriber -> subscriber.emitter().complete());
+        subscribers.clear();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Without a position the subscriber only gets changes made from now on
+    SseEmitter subscribe(Long since) {
+        patientShards.requireUnsharded("change feed");
+        var emitter = new SseEmitter();
+        var subscriber = new Subscriber(
+                emitter,
+                new AtomicLong(since != null ? since : patientService.getLatestChange()),
+                new ArrayBlockingQueue<>(PatientsConstants.MAX_FEED_BACKLOG),
+                new AtomicLong());
+        try {
+            emitter.send(SseEmitter.event().comment("subscribed")); // commits the response so clients see it open
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+            return emitter;
+        }
+        var sender = Thread.ofVirtual().name("patient-change-feed-sender").unstarted(() -> send(subscriber));
+        emitter.onCompletion(() -> unsubscribe(subscriber, sender));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(e -> unsubscribe(subscriber, sender));
+        subscribers.add(subscriber);
+        sender.start();
+        return emitter;
+    }
+
+    private void unsubscribe(Subscriber subscriber, Thread sender) {
+        subscribers.remove(subscriber);
+        sender.interrupt();
+    }
+
+    private void poll() {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        try {
+            var from = subscribers.stream().mapToLong(subscriber -> subscriber.position().get()).min().orElseThrow();
+            PatientChangePage page;
+            do {
+                page = patientService.getChanges(from, PatientsConstants.MAX_CHANGES_PAGE_SIZE);
+                for (var subscriber : subscribers) {
+                    queue(subscriber, page.changes());
+                }
+                from = page.next();
+            } while (page.hasMore());
+        } catch (RuntimeException e) {
+            log.warn("Could not poll patient changes: {}", e.getMessage());
+        }
+        var now = System.nanoTime();
+        for (var subscriber : subscribers) {
+            var fullSince = subscriber.fullSince().get();
+            if (subscriber.backlog().remainingCapacity() > 0) {
+                subscriber.fullSince().set(0);
+            } else if (fullSince == 0) {
+                subscriber.fullSince().set(now);
+            } else if (now - fullSince > maxStall.toNanos()) {
+                log.info("Dropping a change feed subscriber whose backlog stayed full for {}", maxStall);
+                subscribers.remove(subscriber);
+                // completing waits for the stuck send, the client resumes from Last-Event-ID once it notices
+                Thread.ofVirtual().start(subscriber.emitter()::complete);
+            }
+        }
+    }
+
+    // Queues what fits; the rest is read again on a later tick, from this subscriber's position
+    private static void queue(Subscriber subscriber, List<PatientChangeDTO> changes) {
+        for (var change : changes) {
+            if (change.sequence() > subscriber.position().get()) {
+                if (!subscriber.backlog().offer(change)) {
+                    return;
+                }
+                subscriber.position().set(change.sequence());
+            }
+        }
+    }
+
+    private void send(Subscriber subscriber) {
+        try {
+            while (true) {
+                var change = subscriber.backlog().take();
+                subscriber.emitter().send(SseEmitter.event()
+                        .id(Long.toString(change.sequence()))
+                        .name(EVENT_NAME)
+                        .data(change));
+            }
+        } catch (InterruptedException e) {
+            // unsubscribed
+        } catch (IOException | IllegalStateException e) {
+            subscribers.remove(subscriber); // client went away, it will resume from Last-Event-ID
+            subscriber.emitter().completeWithError(e);
+        }
+    }
+}
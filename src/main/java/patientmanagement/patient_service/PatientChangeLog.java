@@ -0,0 +1,91 @@
+package patientmanagement.patient_service;
+
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Append-only log of patient changes, written in the caller's transaction so a
+ * change is logged if and only if it commits. Readers see changes by position,
+ * which is not taken by the writer but handed out later, in one transaction at a
+ * time, to changes whose transaction is older than every transaction still
+ * running (pg_snapshot_xmin). Nothing can commit below a position once it is
+ * visible, so a reader that has seen position n never later finds a smaller one,
+ * and writers never wait on each other. A long running transaction anywhere in
+ * the cluster holds back positions, not writes.
+ */
+@Component
+class PatientChangeLog {
+    private static final long POSITION_LOCK = 0x7061_7469_656e_74L;
+
+    record Entry(long sequence, UUID patientId, PatientChangeDTO.Operation operation, OffsetDateTime changedAt) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    PatientChangeLog(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    void record(PatientChangeDTO.Operation operation, Collection<UUID> patientIds) {
+        if (patientIds.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO patient_change (patient_id, operation) VALUES (?, ?)",
+                patientIds,
+                patientIds.size(),
+                (ps, patientId) -> {
+                    ps.setObject(1, patientId);
+                    ps.setString(2, operation.name());
+                });
+    }
+
+    /**
+     * Hands out positions, in append order, to the changes no running transaction
+     * can precede any more. Must run on the primary before reading; skipped while
+     * another reader is at it, whose positions this one then reads.
+     */
+    @Transactional
+    void assignPositions() {
+        var locked = jdbcTemplate.queryForObject("SELECT pg_try_advisory_xact_lock(?)", Boolean.class, POSITION_LOCK);
+        if (!locked) {
+            return;
+        }
+        jdbcTemplate.update("""
+                UPDATE patient_change change
+                SET position = settled.position
+                FROM (SELECT seq,
+                             (SELECT coalesce(max(position), 0) FROM patient_change)
+                                 + row_number() OVER (ORDER BY seq) AS position
+                      FROM patient_change
+                      WHERE position IS NULL AND xid < pg_snapshot_xmin(pg_current_snapshot())) settled
+                WHERE change.seq = settled.seq""");
+    }
+
+    List<Entry> readAfter(long since, int limit) {
+        return jdbcTemplate.query("""
+                SELECT position, patient_id, operation, changed_at
+                FROM patient_change
+                WHERE position > ?
+                ORDER BY position
+                LIMIT ?""",
+                (rs, i) -> new Entry(
+                        rs.getLong("position"),
+                        rs.getObject("patient_id", UUID.class),
+                        PatientChangeDTO.Operation.valueOf(rs.getString("operation")),
+                        rs.getObject("changed_at", OffsetDateTime.class)),
+                since, limit);
+    }
+
+    long latest() {
+        return jdbcTemplate.queryForObject("SELECT coalesce(max(position), 0) FROM patient_change", Long.class);
+    }
+}
@@ -0,0 +1,7 @@
+package patientmanagement.patient_service;
+
+import java.util.List;
+
+// next is the since cursor for the following read, hasMore means it can be read right away
+record PatientChangePage(List<PatientChangeDTO> changes, long next, boolean hasMore) {
+}
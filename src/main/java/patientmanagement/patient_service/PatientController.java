@@ -1,23 +1,39 @@
 package patientmanagement.patient_service;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.UUID;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.constraints.Email;
@@ -28,32 +44,101 @@ import jakarta.validation.constraints.Email;
 class PatientController {
     private static final Logger log = LoggerFactory.getLogger(PatientController.class);
     private final PatientService patientService;
+    private final PatientChangeFeed patientChangeFeed;
+    private final ObjectWriter ndjsonWriter;
 
-    PatientController(PatientService patientService) {
+    PatientController(PatientService patientService, PatientChangeFeed patientChangeFeed, ObjectMapper objectMapper) {
         this.patientService = patientService;
+        this.patientChangeFeed = patientChangeFeed;
+        this.ndjsonWriter = objectMapper
+                .writerFor(PatientResponseDTO.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
     }
 
     @GetMapping
-    @Operation(summary = "Get All Patients")
-    private ResponseEntity<List<PatientResponseDTO>> getAllPatients() {
-        return ResponseEntity.ok(patientService.getAllPatients());
+    @Operation(summary = "Get All Patients", description = "Keyset paginated, follow the Link rel=\"next\" header."
+            + " Optional bornFrom/bornTo/registeredFrom/registeredTo (YYYY-MM-DD, inclusive)")
+    private ResponseEntity<List<PatientResponseDTO>> getAllPatients(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + PatientsConstants.DEFAULT_PAGE_SIZE) int size,
+            PatientFilter filter) {
+        var page = patientService.getPatients(cursor, size, filter);
+        var response = ResponseEntity.ok();
+        if (page.hasNext()) {
+            var next = ServletUriComponentsBuilder
+                    .fromCurrentRequest()
+                    .replaceQueryParam("cursor", page.nextCursor())
+                    .toUriString();
+            response.header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+        }
+        return response.body(page.patients());
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Export All Patients", description = "Streams one JSON document per line")
+    private ResponseEntity<StreamingResponseBody> exportPatients() {
+        StreamingResponseBody body = out -> {
+            try (var generator = ndjsonWriter.createGenerator(out)) {
+                generator.setRootValueSeparator(null); // lines are separated by '\n' alone
+                var first = new boolean[] { true };
+                patientService.exportPatients(patient -> {
+                    try {
+                        ndjsonWriter.writeValue(generator, patient);
+                        generator.writeRaw('\n');
+                        if (first[0]) { // get the first byte out, then let the buffer decide
+                            generator.flush();
+                            first[0] = false;
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    @GetMapping("/search")
+    @Operation(summary = "Search Patients", description = "Partial or misspelt name or address, best matches first")
+    private ResponseEntity<List<PatientResponseDTO>> searchPatients(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "" + PatientsConstants.DEFAULT_SEARCH_LIMIT) int limit) {
+        return ResponseEntity.ok(patientService.searchPatients(q, limit));
+    }
+
+    @GetMapping("/changes")
+    @Operation(summary = "Get Patient Changes",
+            description = "Ordered changes after the since cursor, deletes are tombstones without a patient")
+    private ResponseEntity<PatientChangePage> getChanges(
+            @RequestParam(defaultValue = "0") long since,
+            @RequestParam(defaultValue = "" + PatientsConstants.DEFAULT_CHANGES_PAGE_SIZE) int size) {
+        return ResponseEntity.ok(patientService.getChanges(since, size));
+    }
+
+    @GetMapping(value = "/changes/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream Patient Changes",
+            description = "Server-Sent Events from since (or Last-Event-ID), live changes only without either")
+    private SseEmitter streamChanges(
+            @RequestParam(required = false) Long since,
+            @RequestHeader(name = "Last-Event-ID", required = false) Long lastEventId) {
+        return patientChangeFeed.subscribe(lastEventId != null ? lastEventId : since);
     }
 
     @GetMapping("/by-email")
-    @Operation(summary = "Get a Patient by Email")
+    @Operation(summary = "Get a Patient by Email", description = "Honors If-None-Match and If-Modified-Since")
     private ResponseEntity<PatientResponseDTO> getPatientByEmail(@RequestParam @Email String email) {
         return patientService
                 .getPatientByEmail(email)
-                .map(ResponseEntity::ok)
+                .map(PatientController::withValidators)
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
     @GetMapping("/{patientId}")
-    @Operation(summary = "Get a Patient by Id")
+    @Operation(summary = "Get a Patient by Id", description = "Honors If-None-Match and If-Modified-Since")
     private ResponseEntity<PatientResponseDTO> getPatientById(@PathVariable UUID patientId) {
         return patientService
                 .getPatientById(patientId)
-                .map(ResponseEntity::ok)
+                .map(PatientController::withValidators)
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
@@ -68,23 +153,86 @@ class PatientController {
                 .path("/api/v1/patients/{patientId}")
                 .buildAndExpand(patient.id())
                 .toUri();
-        return ResponseEntity.created(location).body(patient);
+        return ResponseEntity.created(location).eTag(patient.eTag()).body(patient);
+    }
+
+    @PostMapping("/batch")
+    @Operation(summary = "Create many Patients", description = "Up to 1000 per request, one result per item")
+    private ResponseEntity<List<PatientBatchResultDTO>> createPatients(
+            @RequestBody List<PatientRequestDTO> patientRequestDTOs) {
+        log.info("Creating a batch of {} patients", patientRequestDTOs.size());
+        return ResponseEntity.ok(patientService.createPatients(patientRequestDTOs));
+    }
+
+    @PostMapping("/lookup")
+    @Operation(summary = "Get many Patients", description = "Up to 1000 ids and emails per request, plus the ones not found")
+    private ResponseEntity<PatientLookupResultDTO> lookupPatients(@RequestBody PatientLookupRequestDTO lookupRequest) {
+        return ResponseEntity.ok(patientService.lookupPatients(lookupRequest));
     }
 
     @PutMapping("/{patientId}")
-    @Operation(summary = "Update a Patient")
+    @Operation(summary = "Update a Patient", description = "With If-Match, 412 if the patient changed since")
     public ResponseEntity<PatientResponseDTO> updatePatient(
             @PathVariable UUID patientId,
-            @Validated @RequestBody PatientRequestDTO updatePatientRequest) {
+            @Validated @RequestBody PatientRequestDTO updatePatientRequest,
+            @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         log.info("Uptate request {}", updatePatientRequest);
-        return ResponseEntity.ok(patientService.updatePatient(patientId, updatePatientRequest));
+        var expectedVersion = expectedVersion(patientId, ifMatch);
+        return withValidators(patientService.updatePatient(patientId, updatePatientRequest, expectedVersion));
+    }
+
+    @PatchMapping(value = "/{patientId}", consumes = PatientsConstants.MERGE_PATCH_JSON)
+    @Operation(summary = "Patch a Patient",
+            description = "JSON Merge Patch of email and/or address. With If-Match, 412 if the patient changed since")
+    private ResponseEntity<PatientResponseDTO> patchPatient(
+            @PathVariable UUID patientId,
+            @RequestBody JsonNode mergePatch,
+            @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        var patch = PatientPatchDTO.fromMergePatch(mergePatch);
+        var expectedVersion = expectedVersion(patientId, ifMatch);
+        return withValidators(patientService.patchPatient(patientId, patch, expectedVersion));
+    }
+
+    @DeleteMapping
+    @Operation(summary = "Delete Patients registered before a date",
+            description = "Retention cleanup in batches of 1000, each committed on its own")
+    private ResponseEntity<PatientBulkDeleteResultDTO> deletePatients(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate registeredBefore) {
+        log.info("Deleting patients registered before {}", registeredBefore);
+        return ResponseEntity.ok(new PatientBulkDeleteResultDTO(
+                patientService.deletePatientsRegisteredBefore(registeredBefore)));
     }
 
     @DeleteMapping("/{patientId}")
-    @Operation(summary = "Delete a Patient")
+    @Operation(summary = "Delete a Patient", description = "404 if there is no such patient")
     private ResponseEntity<Void> deletePatient(@PathVariable UUID patientId) {
         patientService.deletePatient(patientId);
         return ResponseEntity.noContent().build();
     }
 
+    // Spring answers 304 itself when these match the request's conditional headers
+    private static ResponseEntity<PatientResponseDTO> withValidators(PatientResponseDTO patient) {
+        return ResponseEntity.ok()
+                .eTag(patient.eTag())
+                .lastModified(patient.lastModified())
+                .body(patient);
+    }
+
+    // No If-Match (or "*") means unconditional, anything but this patient's strong "<id>-<version>" ETag can never match
+    private static Long expectedVersion(UUID patientId, String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.strip().equals("*")) {
+            return null;
+        }
+        var tag = ifMatch.strip();
+        var prefix = "\"" + patientId + "-";
+        if (tag.length() > prefix.length() + 1 && tag.startsWith(prefix) && tag.endsWith("\"")) {
+            try {
+                return Long.parseLong(tag, prefix.length(), tag.length() - 1, 10);
+            } catch (NumberFormatException e) {
+                // falls through to the mismatch below
+            }
+        }
+        throw new PatientVersionMismatchException(patientId + " does not match " + tag);
+    }
+
 }
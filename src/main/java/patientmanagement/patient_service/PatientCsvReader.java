@@ -0,0 +1,122 @@
+package patientmanagement.patient_service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minimal streaming RFC 4180 reader: quoted fields, doubled quotes and line
+ * breaks inside quotes. Only one record is held in memory at a time and
+ * records longer than {@code maxRecordLength} chars are rejected.
+ */
+class PatientCsvReader implements Closeable {
+    private final Reader reader;
+    private final int maxRecordLength;
+    private long lineNumber = 1;
+    private long recordLineNumber;
+    private boolean eof;
+
+    PatientCsvReader(Reader reader, int maxRecordLength) {
+        this.reader = reader;
+        this.maxRecordLength = maxRecordLength;
+    }
+
+    /** Line on which the record last returned by {@link #readRecord()} started. */
+    long recordLineNumber() {
+        return recordLineNumber;
+    }
+
+    /** @return the next record, or {@code null} at end of input */
+    List<String> readRecord() throws IOException {
+        if (eof) {
+            return null;
+        }
+        recordLineNumber = lineNumber;
+        var fields = new ArrayList<String>();
+        var field = new StringBuilder();
+        var length = 0;
+        var quoted = false;
+        var fieldStart = true;
+        int c;
+        while ((c = reader.read()) != -1) {
+            if (++length > maxRecordLength) {
+                skipRestOfRecord(quoted);
+                throw new CsvRecordTooLongException(recordLineNumber, maxRecordLength);
+            }
+            if (quoted) {
+                if (c == '"') {
+                    reader.mark(1);
+                    var next = reader.read();
+                    if (next == '"') {
+                        field.append('"');
+                        continue;
+                    }
+                    quoted = false;
+                    if (next == -1) {
+                        break;
+                    }
+                    reader.reset();
+                } else {
+                    if (c == '\n') {
+                        lineNumber++;
+                    }
+                    field.append((char) c);
+                }
+            } else if (c == '"' && fieldStart) {
+                quoted = true;
+                fieldStart = false;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+                fieldStart = true;
+            } else if (c == '\n' || c == '\r') {
+                if (c == '\r') {
+                    reader.mark(1);
+                    if (reader.read() != '\n') {
+                        reader.reset();
+                    }
+                }
+                lineNumber++;
+                fields.add(field.toString());
+                return fields;
+            } else {
+                field.append((char) c);
+                fieldStart = false;
+            }
+        }
+        eof = true;
+        if (length == 0) {
+            return null;
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private void skipRestOfRecord(boolean quoted) throws IOException {
+        int c;
+        while ((c = reader.read()) != -1) {
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (c == '\n') {
+                lineNumber++;
+                if (!quoted) {
+                    return;
+                }
+            }
+        }
+        eof = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    static class CsvRecordTooLongException extends IOException {
+        CsvRecordTooLongException(long line, int maxRecordLength) {
+            super("line " + line + " is longer than " + maxRecordLength + " chars");
+        }
+    }
+}
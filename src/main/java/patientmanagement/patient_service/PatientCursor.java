@@ -0,0 +1,37 @@
+package patientmanagement.patient_service;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Opaque keyset-pagination token. Encodes the id of the last patient of a page
+ * so the next page can resume with {@code id > cursor} instead of an OFFSET.
+ */
+final class PatientCursor {
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private PatientCursor() { // cannot instantiate
+    }
+
+    static String encode(UUID lastId) {
+        var buffer = ByteBuffer.allocate(16)
+                .putLong(lastId.getMostSignificantBits())
+                .putLong(lastId.getLeastSignificantBits());
+        return ENCODER.encodeToString(buffer.array());
+    }
+
+    static UUID decode(String cursor) {
+        try {
+            var bytes = DECODER.decode(cursor);
+            if (bytes.length != 16) {
+                throw new InvalidCursorException(cursor);
+            }
+            var buffer = ByteBuffer.wrap(bytes);
+            return new UUID(buffer.getLong(), buffer.getLong());
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException(cursor);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package patientmanagement.patient_service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+/**
+ * Which patient holds each email, when sharded: the patient_email table of the
+ * primary (shard 0), so email lookups go to one shard and uniqueness holds across
+ * all of them. A write claims its email here before touching the patient's shard
+ * and the email is released once no longer used. Every statement commits on its
+ * own, so it must not be called inside a shard transaction.
+ *
+ * A write that dies between its claim and its shard leaves a claim no patient
+ * uses. Claiming a held email therefore checks the holder's shard, once the claim
+ * is older than STALE_CLAIM_AGE (younger ones may belong to a write still in
+ * flight), and takes the email over if no patient there has it.
+ */
+@Component
+class PatientEmailDirectory {
+    private final JdbcTemplate jdbcTemplate;
+    private final PatientShards patientShards;
+    private final PatientRepository patientRepository;
+
+    PatientEmailDirectory(JdbcTemplate jdbcTemplate, PatientShards patientShards, PatientRepository patientRepository) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.patientShards = patientShards;
+        this.patientRepository = patientRepository;
+    }
+
+    /**
+     * Claims the email for the patient, true if it was free, false if the patient
+     * already held it.
+     *
+     * @throws PatientEmailAlreadyExists if another patient holds it
+     */
+    boolean claim(String email, UUID patientId) {
+        var claimed = tryClaim(email, patientId);
+        if (claimed.isEmpty() && !releaseStale(List.of(email)).isEmpty()) {
+            claimed = tryClaim(email, patientId);
+        }
+        if (claimed.isEmpty()) {
+            throw new PatientEmailAlreadyExists(email);
+        }
+        return claimed.getFirst();
+    }
+
+    private List<Boolean> tryClaim(String email, UUID patientId) {
+        // The no-op update of the patient's own claim returns its row; xmax = 0 only for a fresh insert
+        return jdbcTemplate.query("""
+                INSERT INTO patient_email (email, patient_id) VALUES (?, ?)
+                ON CONFLICT (email) DO UPDATE SET patient_id = excluded.patient_id
+                WHERE patient_email.patient_id = excluded.patient_id
+                RETURNING xmax = 0""",
+                (rs, i) -> rs.getBoolean(1),
+                email, patientId);
+    }
+
+    /**
+     * Claims each email for its patient in one statement, returning the emails
+     * that were free; the others are held already.
+     */
+    Set<String> claimAll(Map<String, UUID> patientIds) {
+        var claimed = tryClaimAll(patientIds);
+        if (claimed.size() < patientIds.size()) {
+            var held = patientIds.keySet().stream().filter(email -> !claimed.contains(email)).toList();
+            var freed = releaseStale(held);
+            claimed.addAll(tryClaimAll(patientIds.entrySet().stream()
+                    .filter(claim -> freed.contains(claim.getKey()))
+                    .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue))));
+        }
+        return claimed;
+    }
+
+    private Set<String> tryClaimAll(Map<String, UUID> patientIds) {
+        if (patientIds.isEmpty()) {
+            return new HashSet<>();
+        }
+        var emails = new ArrayList<>(patientIds.keySet());
+        return new HashSet<>(jdbcTemplate.queryForList("""
+                INSERT INTO patient_email (email, patient_id)
+                SELECT * FROM unnest(?::varchar[], ?::uuid[])
+                ON CONFLICT (email) DO NOTHING
+                RETURNING email""",
+                String.class,
+                emails.toArray(String[]::new),
+                emails.stream().map(patientIds::get).toArray(UUID[]::new)));
+    }
+
+    /**
+     * Drops the claims among the emails that are older than STALE_CLAIM_AGE and
+     * whose patient's shard has no patient with the email, returning those emails.
+     */
+    private Set<String> releaseStale(Collection<String> emails) {
+        var holders = new HashMap<Integer, Map<String, UUID>>();
+        jdbcTemplate.query("""
+                SELECT email, patient_id FROM patient_email
+                WHERE email = ANY(?) AND claimed_at < now() - make_interval(secs => ?)""",
+                (RowCallbackHandler) rs -> {
+                    var patientId = rs.getObject(2, UUID.class);
+                    holders.computeIfAbsent(patientShards.shardOf(patientId), shard -> new HashMap<>())
+                            .put(rs.getString(1), patientId);
+                },
+                emails.toArray(String[]::new), PatientsConstants.STALE_CLAIM_AGE.toSeconds());
+        var stale = new HashMap<String, UUID>();
+        holders.forEach((shard, claims) -> {
+            var used = patientShards.read(shard, () -> patientRepository.findExistingEmails(claims.keySet()));
+            claims.forEach((email, patientId) -> {
+                if (!used.contains(email)) {
+                    stale.put(email, patientId);
+                }
+            });
+        });
+        releaseAll(stale); // only if still held by the same patient
+        return stale.keySet();
+    }
+
+    void release(String email, UUID patientId) {
+        jdbcTemplate.update("DELETE FROM patient_email WHERE email = ? AND patient_id = ?", email, patientId);
+    }
+
+    void releaseAll(Map<String, UUID> patientIds) {
+        jdbcTemplate.batchUpdate("DELETE FROM patient_email WHERE email = ? AND patient_id = ?",
+                patientIds.entrySet().stream().map(claim -> new Object[] { claim.getKey(), claim.getValue() }).toList());
+    }
+
+    Optional<UUID> find(String email) {
+        return jdbcTemplate.query("SELECT patient_id FROM patient_email WHERE email = ?",
+                (rs, i) -> rs.getObject(1, UUID.class), email).stream().findFirst();
+    }
+
+    Map<String, UUID> findAll(Collection<String> emails) {
+        var owners = new HashMap<String, UUID>();
+        jdbcTemplate.query("SELECT email, patient_id FROM patient_email WHERE email = ANY(?)",
+                (RowCallbackHandler) rs -> owners.put(rs.getString(1), rs.getObject(2, UUID.class)),
+                (Object) emails.toArray(String[]::new));
+        return owners;
+    }
+}
@@ -0,0 +1,168 @@
+package patientmanagement.patient_service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Bloom filter of every stored email (lowercased), so duplicate checks only ask
+ * the database about emails that may already be taken. It is built in the
+ * background from a scan of the table, then kept current from this node's writes
+ * and, for every node's writes, from the change log. Until the first build every
+ * email is a "maybe". A Bloom filter cannot forget: emails freed by an update or
+ * delete stay in until the filter is rebuilt, which happens once it has drifted
+ * past twice the target false positive rate.
+ */
+@Component
+class PatientEmailFilter implements SmartLifecycle {
+    private static final Logger log = LoggerFactory.getLogger(PatientEmailFilter.class);
+    private static final int SCAN_FETCH_SIZE = 10_000;
+    private static final int CHANGES_PAGE_SIZE = 1_000;
+
+    private record Change(long sequence, String email) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate snapshot;
+    private final long expectedEmails;
+    private final double falsePositiveRate;
+    private final Duration refreshInterval;
+    private final Counter absent;
+    private final Counter maybe;
+    private final ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().daemon().name("patient-email-filter").factory());
+    private volatile BloomFilter filter;
+    private long position; // change log sequence the filter is current to, refresher thread only
+    private volatile boolean running;
+
+    PatientEmailFilter(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${patients.email-filter.expected-emails:1000000}") long expectedEmails,
+            @Value("${patients.email-filter.false-positive-rate:0.01}") double falsePositiveRate,
+            @Value("${patients.email-filter.refresh-interval:1s}") Duration refreshInterval) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.snapshot = new TransactionTemplate(transactionManager);
+        this.snapshot.setReadOnly(true);
+        this.snapshot.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.expectedEmails = expectedEmails;
+        this.falsePositiveRate = falsePositiveRate;
+        this.refreshInterval = refreshInterval;
+        this.absent = Counter.builder("patients.email-filter.checks").tag("result", "absent").register(meterRegistry);
+        this.maybe = Counter.builder("patients.email-filter.checks").tag("result", "maybe").register(meterRegistry);
+        Gauge.builder("patients.email-filter.size", this, f -> f.filter == null ? 0 : f.filter.sizeInBytes())
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("patients.email-filter.false-positive-rate",
+                this, f -> f.filter == null ? 1 : f.filter.expectedFalsePositiveRate())
+                .description("Expected rate from the current fill, target " + falsePositiveRate)
+                .register(meterRegistry);
+    }
+
+    boolean mightContain(String email) {
+        var current = filter;
+        var result = current == null || current.mightContain(normalize(email));
+        (result ? maybe : absent).increment();
+        return result;
+    }
+
+    // A rebuild racing with this write either scans the row or reads it from the change log afterwards
+    void add(String email) {
+        var current = filter;
+        if (current != null) {
+            current.put(normalize(email));
+        }
+    }
+
+    @Override
+    public void start() {
+        refresher.scheduleWithFixedDelay(this::refresh, 0, refreshInterval.toMillis(), TimeUnit.MILLISECONDS);
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        refresher.shutdownNow();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void refresh() {
+        try {
+            var current = filter;
+            if (current == null || current.expectedFalsePositiveRate() > 2 * falsePositiveRate) {
+                rebuild(current);
+            } else {
+                catchUp(current);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not refresh the patient email filter: {}", e.getMessage());
+        }
+    }
+
+    // The change log position and the scan share one snapshot, the change log takes over from there
+    private void rebuild(BloomFilter previous) {
+        var started = System.nanoTime();
+        var rebuilt = new BloomFilter(
+                Math.max(expectedEmails, previous == null ? 0 : 2 * previous.approximateEntries()), falsePositiveRate);
+        position = snapshot.execute(status -> {
+            var latest = jdbcTemplate.queryForObject("SELECT coalesce(max(seq), 0) FROM patient_change", Long.class);
+            jdbcTemplate.query(connection -> {
+                var statement = connection.prepareStatement("SELECT email FROM patient");
+                statement.setFetchSize(SCAN_FETCH_SIZE);
+                return statement;
+            }, (RowCallbackHandler) rs -> rebuilt.put(normalize(rs.getString(1))));
+            return latest;
+        });
+        filter = rebuilt;
+        log.info("Built patient email filter: ~{} emails, {} bytes, in {} ms", rebuilt.approximateEntries(),
+                rebuilt.sizeInBytes(), Duration.ofNanos(System.nanoTime() - started).toMillis());
+    }
+
+    private void catchUp(BloomFilter current) {
+        List<Change> changes;
+        do {
+            changes = jdbcTemplate.query("""
+                    SELECT c.seq, p.email
+                    FROM patient_change c LEFT JOIN patient p ON p.id = c.patient_id
+                    WHERE c.seq > ?
+                    ORDER BY c.seq
+                    LIMIT ?""",
+                    (rs, i) -> new Change(rs.getLong(1), rs.getString(2)),
+                    position, CHANGES_PAGE_SIZE);
+            for (var change : changes) {
+                if (change.email() != null) { // null once the patient is deleted
+                    current.put(normalize(change.email()));
+                }
+                position = change.sequence();
+            }
+        } while (changes.size() == CHANGES_PAGE_SIZE);
+    }
+
+    private static String normalize(String email) {
+        return email.strip().toLowerCase(Locale.ROOT);
+    }
+}
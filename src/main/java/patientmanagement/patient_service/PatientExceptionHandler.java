@@ -6,6 +6,7 @@ import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
@@ -13,9 +14,16 @@ import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 
+import io.micrometer.core.instrument.MeterRegistry;
+
 @ControllerAdvice
 class PatientExceptionHandler {
     private static final Logger log = LoggerFactory.getLogger(PatientExceptionHandler.class);
+    private final MeterRegistry meterRegistry;
+
+    PatientExceptionHandler(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
 
     @ExceptionHandler(MethodArgumentNotValidException.class)
     ResponseEntity<Map<String, String>> handleValidationExceptions(MethodArgumentNotValidException ex) {
@@ -24,18 +32,33 @@ class PatientExceptionHandler {
                 .getBindingResult()
                 .getFieldErrors()
                 .forEach(err -> errors.put(err.getField(), err.getDefaultMessage()));
+        countError(ex, HttpStatus.BAD_REQUEST);
         return ResponseEntity.badRequest().body(errors);
     }
 
     @ExceptionHandler({
             PatientEmailAlreadyExists.class,
             PatientNotFoundException.class,
+            PatientVersionMismatchException.class,
+            InvalidCursorException.class,
+            InvalidSearchQueryException.class,
+            InvalidPatchException.class,
+            PatientBatchTooLargeException.class,
+            InvalidImportFileException.class,
+            ShardingUnsupportedException.class,
             HttpMessageNotReadableException.class,
             DateTimeParseException.class })
     <T extends RuntimeException> ResponseEntity<Map<String, String>> handleEmailAlreadyExistsException(T ex) {
         var errorMessage = switch (ex) {
             case PatientEmailAlreadyExists e -> "Email " + e.getMessage() + " is already in use";
             case PatientNotFoundException e -> "Patient " + e.getMessage() + " NOT FOUND";
+            case PatientVersionMismatchException e -> "Patient " + e.getMessage() + ", reload and retry";
+            case InvalidCursorException e -> "Bad Cursor " + e.getMessage();
+            case InvalidSearchQueryException e -> "Bad Search Query " + e.getMessage();
+            case InvalidPatchException e -> "Bad Patch " + e.getMessage();
+            case PatientBatchTooLargeException e -> "Batch too large " + e.getMessage();
+            case InvalidImportFileException e -> "Bad Import File " + e.getMessage();
+            case ShardingUnsupportedException e -> "Not supported with sharded storage: " + e.getMessage();
             case HttpMessageNotReadableException e -> "JSON Parse Error " + e.getMessage();
             case DateTimeParseException e -> "Bad Date (use YYYY-MM-DD) " + e.getMessage();
             default -> "Bad Request (Reason Not Disclosed)";
@@ -43,17 +66,38 @@ class PatientExceptionHandler {
 
         var httpStatus = switch (ex) {
             case PatientNotFoundException e -> HttpStatus.NOT_FOUND;
+            case PatientVersionMismatchException e -> HttpStatus.PRECONDITION_FAILED;
+            case ShardingUnsupportedException e -> HttpStatus.NOT_IMPLEMENTED;
             default -> HttpStatus.BAD_REQUEST;
         };
 
         log.warn("Error ({}): {}", httpStatus.value(), errorMessage);
+        countError(ex, httpStatus);
         return ResponseEntity.status(httpStatus).body(Map.of("message", errorMessage));
     }
 
+    @ExceptionHandler(DatabaseBusyException.class)
+    ResponseEntity<Map<String, String>> handleDatabaseBusyException(DatabaseBusyException ex) {
+        log.warn("Error (503): database busy in {}", ex.getMessage());
+        countError(ex, HttpStatus.SERVICE_UNAVAILABLE);
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(Map.of("message", "Service busy, retry later"));
+    }
+
     @ExceptionHandler(Exception.class)
     ResponseEntity<Map<String, String>> handleUnexpectedExceptions(Exception ex) {
         log.error("Unexpected error: {}", ex.getMessage(), ex); // Log full stack trace
+        countError(ex, HttpStatus.INTERNAL_SERVER_ERROR);
         return ResponseEntity.internalServerError()
                 .body(Map.of("message", "An internal error occurred"));
     }
+
+    private void countError(Exception ex, HttpStatus httpStatus) {
+        meterRegistry
+                .counter("patients.errors",
+                        "exception", ex.getClass().getSimpleName(),
+                        "status", String.valueOf(httpStatus.value()))
+                .increment();
+    }
 }
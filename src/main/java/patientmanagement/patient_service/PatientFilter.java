@@ -0,0 +1,39 @@
+package patientmanagement.patient_service;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.format.annotation.DateTimeFormat;
+
+/**
+ * Optional, inclusive date ranges for the patient list. Each bound becomes a
+ * range predicate on an indexed column and is combined with the keyset cursor.
+ */
+record PatientFilter(
+        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate bornFrom,
+        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate bornTo,
+        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate registeredFrom,
+        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate registeredTo) {
+
+    Specification<Patient> toSpecification(UUID after) {
+        return Specification.allOf(
+                greaterThan("id", after),
+                atLeast("dateOfBirth", bornFrom),
+                atMost("dateOfBirth", bornTo),
+                atLeast("dateOfRegistration", registeredFrom),
+                atMost("dateOfRegistration", registeredTo));
+    }
+
+    private static Specification<Patient> greaterThan(String attribute, UUID value) {
+        return value == null ? null : (root, query, cb) -> cb.greaterThan(root.get(attribute), value);
+    }
+
+    private static Specification<Patient> atLeast(String attribute, LocalDate value) {
+        return value == null ? null : (root, query, cb) -> cb.greaterThanOrEqualTo(root.get(attribute), value);
+    }
+
+    private static Specification<Patient> atMost(String attribute, LocalDate value) {
+        return value == null ? null : (root, query, cb) -> cb.lessThanOrEqualTo(root.get(attribute), value);
+    }
+}
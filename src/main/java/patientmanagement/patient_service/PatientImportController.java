@@ -0,0 +1,56 @@
+package patientmanagement.patient_service;
+
+import java.io.IOException;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+@RestController
+@RequestMapping("/api/v1/patients/imports")
+@Tag(name = "Patient Import", description = "Bulk CSV Import of Patients")
+class PatientImportController {
+    private static final Logger log = LoggerFactory.getLogger(PatientImportController.class);
+    private final PatientImportService patientImportService;
+
+    PatientImportController(PatientImportService patientImportService) {
+        this.patientImportService = patientImportService;
+    }
+
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @Operation(summary = "Import Patients from CSV",
+            description = "Header: name,email,address,dateOfBirth[,dateOfRegistration]. Runs in the background")
+    private ResponseEntity<PatientImportStatusDTO> importPatients(
+            @RequestParam("file") MultipartFile file,
+            UriComponentsBuilder ucb) throws IOException {
+        log.info("Importing {} ({} bytes)", file.getOriginalFilename(), file.getSize());
+        var job = patientImportService.start(file);
+        var location = ucb
+                .path("/api/v1/patients/imports/{jobId}")
+                .buildAndExpand(job.getId())
+                .toUri();
+        return ResponseEntity.accepted().location(location).body(job.toStatusDTO());
+    }
+
+    @GetMapping("/{jobId}")
+    @Operation(summary = "Get the status of an Import")
+    private ResponseEntity<PatientImportStatusDTO> getImport(@PathVariable UUID jobId) {
+        return patientImportService
+                .find(jobId)
+                .map(job -> ResponseEntity.ok(job.toStatusDTO()))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+}
@@ -0,0 +1,98 @@
+package patientmanagement.patient_service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of one CSV import. Counters are updated by the import thread and
+ * read by status requests; only the first {@code maxErrors} row errors are kept.
+ */
+class PatientImportJob {
+    enum State {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+
+    private final UUID id = UUID.randomUUID();
+    private final String fileName;
+    private final int maxErrors;
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final List<String> errors = new ArrayList<>();
+    private volatile State state = State.QUEUED;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+
+    PatientImportJob(String fileName, int maxErrors) {
+        this.fileName = fileName;
+        this.maxErrors = maxErrors;
+    }
+
+    UUID getId() {
+        return id;
+    }
+
+    State getState() {
+        return state;
+    }
+
+    Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    void started() {
+        startedAt = Instant.now();
+        state = State.RUNNING;
+    }
+
+    void created(long rows) {
+        processed.addAndGet(rows);
+        created.addAndGet(rows);
+    }
+
+    void rejected(long line, String error) {
+        processed.incrementAndGet();
+        rejected.incrementAndGet();
+        synchronized (errors) {
+            if (errors.size() < maxErrors) {
+                errors.add("line " + line + ": " + error);
+            }
+        }
+    }
+
+    void finished(State finalState, String error) {
+        if (error != null) {
+            synchronized (errors) {
+                errors.add(error);
+            }
+        }
+        finishedAt = Instant.now();
+        state = finalState;
+    }
+
+    PatientImportStatusDTO toStatusDTO() {
+        var start = startedAt;
+        var end = finishedAt != null ? finishedAt : Instant.now();
+        var rows = processed.get();
+        var seconds = start == null ? 0 : Duration.between(start, end).toMillis() / 1000.0;
+        List<String> errorsSoFar;
+        synchronized (errors) {
+            errorsSoFar = List.copyOf(errors);
+        }
+        return new PatientImportStatusDTO(
+                id,
+                fileName,
+                state,
+                rows,
+                created.get(),
+                rejected.get(),
+                seconds > 0 ? rows / seconds : 0,
+                start,
+                finishedAt,
+                errorsSoFar);
+    }
+}
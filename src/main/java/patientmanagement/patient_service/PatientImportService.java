@@ -0,0 +1,215 @@
+package patientmanagement.patient_service;
+
+import static patientmanagement.patient_service.PatientsConstants.IMPORT_BATCH_SIZE;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Runs CSV roster imports in the background. The upload is spooled to a temp
+ * file, then streamed record by record into {@link PatientService#createPatients}
+ * in fixed-size batches, so memory stays bounded by the batch size, not the file.
+ */
+@Service
+class PatientImportService {
+    private static final Logger log = LoggerFactory.getLogger(PatientImportService.class);
+    private static final List<String> REQUIRED_COLUMNS = List.of("name", "email", "address", "dateOfBirth");
+
+    private final PatientService patientService;
+    private final Map<UUID, PatientImportJob> jobs = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newFixedThreadPool(
+            PatientsConstants.IMPORT_CONCURRENCY,
+            Thread.ofPlatform().name("patient-import-", 0).factory());
+
+    PatientImportService(PatientService patientService) {
+        this.patientService = patientService;
+    }
+
+    PatientImportJob start(MultipartFile file) throws IOException {
+        var csvFile = Files.createTempFile("patient-import-", ".csv");
+        try {
+            file.transferTo(csvFile);
+            try (var csv = open(csvFile)) {
+                columnIndex(csv.readRecord()); // reject a bad header now rather than in the background
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(csvFile);
+            throw e;
+        }
+        evictFinishedJobs();
+        var job = new PatientImportJob(file.getOriginalFilename(), PatientsConstants.MAX_IMPORT_ERRORS);
+        jobs.put(job.getId(), job);
+        executor.execute(() -> run(job, csvFile));
+        log.info("Queued import {} of {}", job.getId(), file.getOriginalFilename());
+        return job;
+    }
+
+    Optional<PatientImportJob> find(UUID jobId) {
+        return Optional.ofNullable(jobs.get(jobId));
+    }
+
+    private void run(PatientImportJob job, Path csvFile) {
+        job.started();
+        try (var csv = open(csvFile)) {
+            var columns = columnIndex(csv.readRecord());
+            var batch = new ArrayList<PatientRequestDTO>(IMPORT_BATCH_SIZE);
+            var lines = new ArrayList<Long>(IMPORT_BATCH_SIZE);
+            while (true) {
+                List<String> record;
+                try {
+                    record = csv.readRecord();
+                } catch (PatientCsvReader.CsvRecordTooLongException e) {
+                    job.rejected(csv.recordLineNumber(), e.getMessage());
+                    continue;
+                }
+                if (record == null) {
+                    break;
+                }
+                if (record.size() == 1 && record.getFirst().isBlank()) {
+                    continue; // blank line
+                }
+                try {
+                    batch.add(toRequest(record, columns));
+                    lines.add(csv.recordLineNumber());
+                } catch (DateTimeParseException e) {
+                    job.rejected(csv.recordLineNumber(), "Bad Date (use YYYY-MM-DD) " + e.getParsedString());
+                }
+                if (batch.size() == IMPORT_BATCH_SIZE) {
+                    flush(job, batch, lines);
+                }
+            }
+            flush(job, batch, lines);
+            job.finished(PatientImportJob.State.COMPLETED, null);
+            log.info("Import {} completed: {}", job.getId(), job.toStatusDTO());
+        } catch (Exception e) {
+            log.error("Import {} failed: {}", job.getId(), e.getMessage(), e);
+            job.finished(PatientImportJob.State.FAILED, e.getMessage());
+        } finally {
+            try {
+                Files.deleteIfExists(csvFile);
+            } catch (IOException e) {
+                log.warn("Could not delete {}: {}", csvFile, e.getMessage());
+            }
+        }
+    }
+
+    private void flush(PatientImportJob job, List<PatientRequestDTO> batch, List<Long> lines) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            record(job, patientService.createPatients(List.copyOf(batch)), lines);
+        } catch (RuntimeException e) {
+            // e.g. a concurrent writer took one of the emails: fall back to row by row for this batch only
+            log.warn("Import {} batch failed ({}), retrying rows individually", job.getId(), e.getMessage());
+            for (int i = 0; i < batch.size(); i++) {
+                try {
+                    record(job, patientService.createPatients(List.of(batch.get(i))), List.of(lines.get(i)));
+                } catch (RuntimeException rowError) {
+                    job.rejected(lines.get(i), rowError.getMessage());
+                }
+            }
+        }
+        batch.clear();
+        lines.clear();
+    }
+
+    private static void record(PatientImportJob job, List<PatientBatchResultDTO> results, List<Long> lines) {
+        var created = 0L;
+        for (var result : results) {
+            if (result.status() == PatientBatchResultDTO.Status.CREATED) {
+                created++;
+            } else {
+                job.rejected(lines.get(result.index()), String.join("; ", result.errors()));
+            }
+        }
+        job.created(created);
+    }
+
+    private static PatientRequestDTO toRequest(List<String> record, Map<String, Integer> columns) {
+        return new PatientRequestDTO(
+                field(record, columns, "name"),
+                field(record, columns, "email"),
+                field(record, columns, "address"),
+                date(field(record, columns, "dateOfBirth")),
+                date(field(record, columns, "dateOfRegistration")));
+    }
+
+    private static String field(List<String> record, Map<String, Integer> columns, String column) {
+        var index = columns.get(column);
+        if (index == null || index >= record.size()) {
+            return null;
+        }
+        var value = record.get(index).strip();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static LocalDate date(String value) {
+        return value == null ? null : LocalDate.parse(value);
+    }
+
+    private static Map<String, Integer> columnIndex(List<String> header) {
+        if (header == null) {
+            throw new InvalidImportFileException("file is empty");
+        }
+        var columns = new HashMap<String, Integer>();
+        for (int i = 0; i < header.size(); i++) {
+            var column = header.get(i).replace("\uFEFF", "").strip();
+            for (var known : List.of("name", "email", "address", "dateOfBirth", "dateOfRegistration")) {
+                if (known.equalsIgnoreCase(column)) {
+                    columns.put(known, i);
+                }
+            }
+        }
+        var missing = REQUIRED_COLUMNS.stream().filter(c -> !columns.containsKey(c)).toList();
+        if (!missing.isEmpty()) {
+            throw new InvalidImportFileException("missing columns " + missing);
+        }
+        return columns;
+    }
+
+    private static PatientCsvReader open(Path csvFile) throws IOException {
+        return new PatientCsvReader(
+                Files.newBufferedReader(csvFile, StandardCharsets.UTF_8),
+                PatientsConstants.MAX_CSV_RECORD_LENGTH);
+    }
+
+    private void evictFinishedJobs() {
+        var excess = jobs.size() - PatientsConstants.MAX_RETAINED_IMPORTS + 1;
+        if (excess <= 0) {
+            return;
+        }
+        jobs.values().stream()
+                .filter(job -> job.getFinishedAt() != null)
+                .sorted(Comparator.comparing(PatientImportJob::getFinishedAt))
+                .limit(excess)
+                .toList()
+                .forEach(job -> jobs.remove(job.getId()));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,18 @@
+package patientmanagement.patient_service;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+record PatientImportStatusDTO(
+        UUID id,
+        String fileName,
+        PatientImportJob.State state,
+        long rowsProcessed,
+        long rowsCreated,
+        long rowsRejected,
+        double rowsPerSecond,
+        Instant startedAt,
+        Instant finishedAt,
+        List<String> errors) {
+}
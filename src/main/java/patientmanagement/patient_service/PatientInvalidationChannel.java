@@ -0,0 +1,20 @@
+package patientmanagement.patient_service;
+
+import java.util.Collection;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Carries patient cache invalidations to the other replicas. Publishing inside a
+ * transaction must only be delivered if and when that transaction commits.
+ */
+interface PatientInvalidationChannel {
+    void publish(Collection<UUID> patientIds);
+
+    /**
+     * Hands each invalidation to the listener. Whenever the channel may have
+     * missed some, e.g. while (re)connecting, it calls missedSome instead, which
+     * must drop everything cached.
+     */
+    void subscribe(Consumer<UUID> listener, Runnable missedSome);
+}
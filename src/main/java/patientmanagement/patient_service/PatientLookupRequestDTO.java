@@ -0,0 +1,14 @@
+package patientmanagement.patient_service;
+
+import java.util.List;
+import java.util.UUID;
+
+record PatientLookupRequestDTO(
+        List<UUID> ids,
+        List<String> emails) {
+
+    PatientLookupRequestDTO {
+        ids = ids == null ? List.of() : ids;
+        emails = emails == null ? List.of() : emails;
+    }
+}
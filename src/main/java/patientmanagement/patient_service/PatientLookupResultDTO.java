@@ -0,0 +1,10 @@
+package patientmanagement.patient_service;
+
+import java.util.List;
+import java.util.UUID;
+
+record PatientLookupResultDTO(
+        List<PatientResponseDTO> patients,
+        List<UUID> missingIds,
+        List<String> missingEmails) {
+}
@@ -0,0 +1,9 @@
+package patientmanagement.patient_service;
+
+import java.util.List;
+
+record PatientPage(List<PatientResponseDTO> patients, String nextCursor) {
+    boolean hasNext() {
+        return nextCursor != null;
+    }
+}
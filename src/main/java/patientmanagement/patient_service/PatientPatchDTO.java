@@ -0,0 +1,49 @@
+package patientmanagement.patient_service;
+
+import static patientmanagement.patient_service.PatientsConstants.ADDRESS_BLANK;
+import static patientmanagement.patient_service.PatientsConstants.EMAIL_INVALID;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.Pattern;
+
+/**
+ * A JSON Merge Patch (RFC 7396) of a patient, null components are left as they
+ * are. Only email and address can change and neither can be removed, so a null
+ * member is rejected instead of being read as a removal.
+ */
+record PatientPatchDTO(
+        @Email(message = EMAIL_INVALID) String email,
+        @Pattern(regexp = "(?s).*\\S.*", message = ADDRESS_BLANK) String address) {
+
+    static PatientPatchDTO fromMergePatch(JsonNode patch) {
+        if (patch == null || !patch.isObject()) {
+            throw new InvalidPatchException("a merge patch must be a JSON object");
+        }
+        String email = null;
+        String address = null;
+        for (var member : patch.properties()) {
+            switch (member.getKey()) {
+                case "email" -> email = text(member.getKey(), member.getValue());
+                case "address" -> address = text(member.getKey(), member.getValue());
+                default -> throw new InvalidPatchException(member.getKey() + " cannot be changed");
+            }
+        }
+        return new PatientPatchDTO(email, address);
+    }
+
+    boolean isEmpty() {
+        return email == null && address == null;
+    }
+
+    private static String text(String name, JsonNode value) {
+        if (value.isNull()) {
+            throw new InvalidPatchException(name + " cannot be removed");
+        }
+        if (!value.isTextual()) {
+            throw new InvalidPatchException(name + " must be a string");
+        }
+        return value.textValue();
+    }
+}
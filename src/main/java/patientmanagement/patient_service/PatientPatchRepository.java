@@ -0,0 +1,13 @@
+package patientmanagement.patient_service;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import org.springframework.transaction.annotation.Transactional;
+
+// Fragment of PatientRepository, implemented by PatientPatchRepositoryImpl
+interface PatientPatchRepository {
+    // Empty when the patient is gone or, with an expected version, was changed in between
+    @Transactional
+    Optional<Patient> patch(UUID id, Long expectedVersion, PatientPatchDTO patch);
+}
@@ -0,0 +1,47 @@
+package patientmanagement.patient_service;
+
+import java.util.Optional;
+import java.util.StringJoiner;
+import java.util.UUID;
+
+import org.springframework.transaction.annotation.Transactional;
+
+import jakarta.persistence.EntityManager;
+
+class PatientPatchRepositoryImpl implements PatientPatchRepository {
+    private final EntityManager entityManager;
+
+    PatientPatchRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    // Sets only the columns in the patch, so an address change never rewrites (or re-checks) the email
+    @Override
+    @Transactional
+    public Optional<Patient> patch(UUID id, Long expectedVersion, PatientPatchDTO patch) {
+        var assignments = new StringJoiner(", ");
+        if (patch.email() != null) {
+            assignments.add("email = :email");
+        }
+        if (patch.address() != null) {
+            assignments.add("address = :address");
+        }
+        assignments.add("version = version + 1").add("last_modified = now()");
+        var query = entityManager.createNativeQuery(
+                "UPDATE patient SET " + assignments
+                        + " WHERE id = :id" + (expectedVersion == null ? "" : " AND version = :version")
+                        + " RETURNING *",
+                Patient.class);
+        query.setParameter("id", id);
+        if (expectedVersion != null) {
+            query.setParameter("version", expectedVersion);
+        }
+        if (patch.email() != null) {
+            query.setParameter("email", patch.email());
+        }
+        if (patch.address() != null) {
+            query.setParameter("address", patch.address());
+        }
+        return query.getResultList().stream().map(Patient.class::cast).findFirst();
+    }
+}
@@ -1,15 +1,97 @@
 package patientmanagement.patient_service;
 
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.transaction.annotation.Transactional;
 
-interface PatientRepository extends JpaRepository<Patient, UUID> {
-    boolean existsByEmail(String email); // Check if an email already exists in the database
+import jakarta.persistence.QueryHint;
 
+// Keyset pages with optional date ranges go through JpaSpecificationExecutor, see PatientFilter.
+// Queries are read-only transactions so they can be served by a replica, see ReplicaRoutingDataSource
+@Transactional(readOnly = true)
+interface PatientRepository
+        extends JpaRepository<Patient, UUID>, JpaSpecificationExecutor<Patient>, PatientPatchRepository {
     Optional<Patient> findByEmail(String email); // Find a patient by email
 
-    // Check if an email already exists in the database for a different patient
-    boolean existsByEmailAndIdNot(String email, UUID id);
+    List<Patient> findByEmailIn(Collection<String> emails);
+
+    // Single round trip update, a taken email surfaces as a unique constraint violation
+    @Transactional
+    @Query(value = """
+            UPDATE patient
+            SET email = :email, address = :address, version = version + 1, last_modified = now()
+            WHERE id = :id
+            RETURNING *""", nativeQuery = true)
+    Optional<Patient> updateEmailAndAddress(UUID id, String email, String address);
+
+    // Optimistic variant for If-Match, empty when the patient is gone or was changed in between
+    @Transactional
+    @Query(value = """
+            UPDATE patient
+            SET email = :email, address = :address, version = version + 1, last_modified = now()
+            WHERE id = :id AND version = :version
+            RETURNING *""", nativeQuery = true)
+    Optional<Patient> updateEmailAndAddress(UUID id, long version, String email, String address);
+
+    // Single round trip delete, unlike deleteById it loads nothing; the freed email, empty when there was no such patient
+    @Transactional
+    @Query(value = "DELETE FROM patient WHERE id = :id RETURNING email", nativeQuery = true)
+    Optional<String> deleteDirectlyById(UUID id);
+
+    // Locks the row for the rest of the write, so the email it replaces is the one it held
+    @Transactional
+    @Query(value = "SELECT email FROM patient WHERE id = :id FOR UPDATE", nativeQuery = true)
+    Optional<String> findEmailForUpdate(UUID id);
+
+    // One bounded batch of a bulk delete, so no transaction holds many row locks for long; the deleted rows
+    @Transactional
+    @Query(value = """
+            DELETE FROM patient
+            WHERE id IN (SELECT id FROM patient WHERE date_of_registration < :before LIMIT :limit)
+            RETURNING *""", nativeQuery = true)
+    List<Patient> deleteRegisteredBefore(LocalDate before, int limit);
+
+    // Set-based duplicate check for batch inserts, one round trip for the whole batch
+    @Query("select p.email from Patient p where p.email in :emails")
+    Set<String> findExistingEmails(Collection<String> emails);
+
+    // Trigram search: every predicate is served by the gin_trgm_ops indexes of the V3 migration,
+    // prefix hits first, then by how closely the query matches a word in the name or address
+    @Query(value = """
+            SELECT * FROM patient
+            WHERE name ILIKE :pattern OR address ILIKE :pattern
+               OR :query <% name OR :query <% address
+            ORDER BY name ILIKE :prefix DESC,
+                     greatest(word_similarity(:query, name), word_similarity(:query, address)) DESC,
+                     name
+            LIMIT :limit""", nativeQuery = true)
+    List<Patient> search(String query, String pattern, String prefix, int limit);
+
+    // Search hits gathered from every shard, put in the order of search above: their indexes, best first
+    @Query(value = """
+            SELECT hit.position - 1
+            FROM unnest(CAST(:names AS text[]), CAST(:addresses AS text[])) WITH ORDINALITY
+                AS hit(name, address, position)
+            ORDER BY name ILIKE :prefix DESC,
+                     greatest(word_similarity(:query, name), word_similarity(:query, address)) DESC,
+                     name
+            LIMIT :limit""", nativeQuery = true)
+    List<Long> rankSearchHits(String query, String prefix, String[] names, String[] addresses, int limit);
+
+    // Server-side cursor for exports, must be consumed inside a transaction and closed
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + PatientsConstants.EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true") })
+    Stream<Patient> streamAllBy();
 }
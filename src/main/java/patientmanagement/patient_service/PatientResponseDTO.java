@@ -1,13 +1,34 @@
 package patientmanagement.patient_service;
 
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.UUID;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+// version and lastModified travel in the ETag and Last-Modified headers, not in the body
 record PatientResponseDTO(
         UUID id,
         String name,
         String email,
         String address,
         LocalDate dateOfBirth,
-        LocalDate dateOfRegistration) {
+        LocalDate dateOfRegistration,
+        @JsonIgnore Long version,
+        @JsonIgnore Instant lastModified) {
+
+    PatientResponseDTO(
+            UUID id,
+            String name,
+            String email,
+            String address,
+            LocalDate dateOfBirth,
+            LocalDate dateOfRegistration) {
+        this(id, name, email, address, dateOfBirth, dateOfRegistration, null, null);
+    }
+
+    // The id keeps validators of different patients apart, as /by-email serves any of them under one URL
+    String eTag() {
+        return version == null ? null : "\"" + id + "-" + version + "\"";
+    }
 }
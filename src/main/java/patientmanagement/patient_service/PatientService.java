@@ -1,64 +1,600 @@
 package patientmanagement.patient_service;
 
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.TreeMap;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.Validator;
 
 @Service
 class PatientService {
+    private static final String SERVICE_TIMER = "patients.service";
+    private static final String UNIQUE_VIOLATION = "23505";
+    // Postgres orders uuids by their bytes, i.e. both halves unsigned
+    private static final Comparator<Patient> BY_ID = Comparator
+            .comparing((Patient patient) -> patient.getId().getMostSignificantBits(), Long::compareUnsigned)
+            .thenComparing(patient -> patient.getId().getLeastSignificantBits(), Long::compareUnsigned);
     private final PatientRepository patientRepository;
+    private final EntityManager entityManager;
+    private final Validator validator;
+    private final PatientCache patientCache;
+    private final PatientChangeLog patientChangeLog;
+    private final PatientEmailFilter patientEmailFilter;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final PatientShards patientShards;
+    private final PatientEmailDirectory emailDirectory;
+    private final ObjectProvider<DatabaseConcurrencyLimiter> concurrencyLimiter;
 
-    PatientService(PatientRepository patientRepository) {
+    PatientService(
+            PatientRepository patientRepository,
+            EntityManager entityManager,
+            Validator validator,
+            PatientCache patientCache,
+            PatientChangeLog patientChangeLog,
+            PatientEmailFilter patientEmailFilter,
+            TransactionTemplate transactionTemplate,
+            PatientShards patientShards,
+            PatientEmailDirectory emailDirectory,
+            ObjectProvider<DatabaseConcurrencyLimiter> concurrencyLimiter) {
         this.patientRepository = patientRepository;
+        this.entityManager = entityManager;
+        this.validator = validator;
+        this.patientCache = patientCache;
+        this.patientChangeLog = patientChangeLog;
+        this.patientEmailFilter = patientEmailFilter;
+        this.transactionTemplate = transactionTemplate;
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnlyTransactionTemplate.setReadOnly(true); // may be served by a replica
+        this.patientShards = patientShards;
+        this.emailDirectory = emailDirectory;
+        this.concurrencyLimiter = concurrencyLimiter;
+    }
+
+    @Timed(value = SERVICE_TIMER, extraTags = { "operation", "get-all" })
+    PatientPage getPatients(String cursor, int size, PatientFilter filter) {
+        var pageSize = Math.clamp(size, 1, PatientsConstants.MAX_PAGE_SIZE);
+        var after = cursor == null || cursor.isBlank() ? null : PatientCursor.decode(cursor);
+        var specification = filter.toSpecification(after);
+        // Fetch one extra row to learn whether there is a next page without a COUNT. Sharded, every shard
+        // is asked for a full page and the pages are merged: the first rows by id are among them
+        var patients = patientShards.readEach(shard -> firstRows(specification, pageSize + 1)).stream()
+                .flatMap(List::stream)
+                .sorted(BY_ID)
+                .limit(pageSize + 1)
+                .toList();
+        if (patients.size() <= pageSize) {
+            return new PatientPage(patients.stream().map(Patient::toResponseDTO).toList(), null);
+        }
+        var page = patients.subList(0, pageSize);
+        var nextCursor = PatientCursor.encode(page.getLast().getId());
+        return new PatientPage(page.stream().map(Patient::toResponseDTO).toList(), nextCursor);
+    }
+
+    private List<Patient> firstRows(Specification<Patient> specification, int limit) {
+        return patientRepository.findBy(specification, query -> query.sortBy(Sort.by("id")).limit(limit).all());
+    }
+
+    // Sharded, the shards are read in parallel and their patients interleaved
+    @Timed(value = SERVICE_TIMER, extraTags = { "operation", "export" })
+    void exportPatients(Consumer<PatientResponseDTO> sink) {
+        patientShards.<PatientResponseDTO>streamEach(emit -> {
+            try (var patients = patientRepository.streamAllBy()) {
+                patients.forEach(patient -> {
+                    emit.accept(patient.toResponseDTO());
+                    entityManager.detach(patient); // keep the persistence context from growing with the table
+                });
+            }
+        }, sink);
     }
 
-    List<PatientResponseDTO> getAllPatients() {
-        return patientRepository
-                .findAll()
-                .stream()
-                .map(Patient::toResponseDTO)
+    // Sharded, every shard returns its own best hits and the primary ranks them together as one search would
+    @Timed(value = SERVICE_TIMER, extraTags = { "operation", "search" })
+    List<PatientResponseDTO> searchPatients(String query, int limit) {
+        var trimmed = query == null ? "" : query.strip();
+        if (trimmed.length() < PatientsConstants.MIN_SEARCH_LENGTH) {
+            throw new InvalidSearchQueryException(
+                    "q must have at least " + PatientsConstants.MIN_SEARCH_LENGTH + " characters");
+        }
+        var literal = trimmed.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        var pattern = "%" + literal + "%";
+        var prefix = literal + "%";
+        var maxHits = Math.clamp(limit, 1, PatientsConstants.MAX_SEARCH_LIMIT);
+        var hits = patientShards.readEach(shard -> patientRepository.search(trimmed, pattern, prefix, maxHits)).stream()
+                .flatMap(List::stream)
                 .toList();
+        if (patientShards.isSharded() && !hits.isEmpty()) {
+            var names = hits.stream().map(Patient::getName).toArray(String[]::new);
+            var addresses = hits.stream().map(Patient::getAddress).toArray(String[]::new);
+            return patientShards.read(0, () -> patientRepository.rankSearchHits(trimmed, prefix, names, addresses, maxHits))
+                    .stream()
+                    .map(index -> hits.get(index.intValue()).toResponseDTO())
+                    .toList();
+        }
+        return hits.stream().map(Patient::toResponseDTO).toList();
     }
 
+    @Timed(value = SERVICE_TIMER, extraTags = { "operation", "by-email" })
     Optional<PatientResponseDTO> getPatientByEmail(String email) {
-        return patientRepository.findByEmail(email).map(Patient::toResponseDTO);
+        return patientCache.getIfPresentByEmail(email).or(() -> onCacheMiss("getPatientByEmail",
+                () -> patientCache.getByEmail(email, key -> ReplicaRoutingDataSource.onPrimary(
+                        () -> findByEmail(key).map(Patient::toResponseDTO)))));
+    }
+
+    // Sharded, the email directory tells which shard to ask
+    private Optional<Patient> findByEmail(String email) {
+        if (!patientShards.isSharded()) {
+            return patientRepository.findByEmail(email);
+        }
+        return emailDirectory.find(email)
+                .flatMap(patientId -> patientShards.read(patientId, () -> patientRepository.findByEmail(email)));
     }
 
+    // Cache misses load from the primary: a lagging replica's row would be served to everyone until it expires
+    @Timed(value = SERVICE_TIMER, extraTags = { "operation", "by-id" })
     Optional<PatientResponseDTO> getPatientById(UUID patientId) {
-        return patientRepository.findById(patientId).map(Patient::toResponseDTO);
+        return patientCache.getIfPresent(patientId).or(() -> onCacheMiss("getPatientById",
+                () -> patientCache.getById(patientId, id -> ReplicaRoutingDataSource.onPrimary(
+                        () -> patientShards.read(id, () -> patientRepository.findById(id))
+                                .map(Patient::toResponseDTO)))));
     }
 
+    // In virtual-thread mode only a miss waits for a database permit, see DatabaseConcurrencyLimiter
+    private <T> T onCacheMiss(String operation, Supplier<T> load) {
+        var limiter = concurrencyLimiter.getIfAvailable();
+        return limiter == null ? load.get() : limiter.withPermit(operation, load);
+    }
+
+    /**
+     * Resolves many ids and emails at once. Ids are served from the cache where
+     * possible, the rest is fetched with IN queries of at most LOOKUP_CHUNK_SIZE
+     * keys, per shard when sharded. Patients come back once each, in request order.
+     */
+    @Timed(value = SERVICE_TIMER, extraTags = { "operation", "lookup" })
+    PatientLookupResultDTO lookupPatients(PatientLookupRequestDTO request) {
+        var ids = request.ids().stream().filter(Objects::nonNull).collect(Collectors.toCollection(LinkedHashSet::new));
+        var emails = request.emails().stream().filter(Objects::nonNull).collect(Collectors.toCollection(LinkedHashSet::new));
+        if (ids.size() + emails.size() > PatientsConstants.MAX_LOOKUP_SIZE) {
+            throw new PatientBatchTooLargeException(
+                    ids.size() + emails.size() + " > " + PatientsConstants.MAX_LOOKUP_SIZE);
+        }
+        var byId = patientCache.getAllById(ids, misses -> ReplicaRoutingDataSource.onPrimary(
+                () -> onShardsOf(misses, Function.identity(), patientRepository::findAllById)).stream()
+                .collect(Collectors.toMap(Patient::getId, Patient::toResponseDTO)));
+        var owners = patientShards.isSharded() ? emailDirectory.findAll(emails) : Map.<String, UUID>of();
+        var byEmail = (patientShards.isSharded()
+                ? onShardsOf(owners.keySet(), owners::get, patientRepository::findByEmailIn)
+                : inChunks(emails, patientRepository::findByEmailIn)).stream()
+                .collect(Collectors.toMap(Patient::getEmail, Patient::toResponseDTO));
+
+        var patients = new LinkedHashMap<UUID, PatientResponseDTO>();
+        ids.stream().map(byId::get).filter(Objects::nonNull).forEach(p -> patients.putIfAbsent(p.id(), p));
+        emails.stream().map(byEmail::get).filter(Objects::nonNull).forEach(p -> patients.putIfAbsent(p.id(), p));
+        return new PatientLookupResultDTO(
+                List.copyOf(patients.values()),
+                ids.stream().filter(id -> !byId.containsKey(id)).toList(),
+                emails.stream().filter(email -> !byEmail.containsKey(email)).toList());
+    }
+
+    // Keys grouped by the shard of their patient, each group queried on its shard
+    private <K> List<Patient> onShardsOf(
+            Collection<? extends K> keys,
+            Function<K, UUID> patientId,
+            Function<List<K>, List<Patient>> query) {
+        if (!patientShards.isSharded()) {
+            return inChunks(keys, query);
+        }
+        var byShard = keys.stream().collect(Collectors.<K, Integer>groupingBy(
+                key -> patientShards.shardOf(patientId.apply(key))));
+        var patients = new ArrayList<Patient>(keys.size());
+        byShard.forEach((shard, shardKeys) -> patients.addAll(
+                patientShards.read(shard, () -> inChunks(shardKeys, query))));
+        return patients;
+    }
+
+    private static <K> List<Patient> inChunks(Collection<? extends K> keys, Function<List<K>, List<Patient>> query) {
+        var patients = new ArrayList<Patient>(keys.size());
+        var chunk = new ArrayList<K>(PatientsConstants.LOOKUP_CHUNK_SIZE);
+        for (var key : keys) {
+            chunk.add(key);
+            if (chunk.size() == PatientsConstants.LOOKUP_CHUNK_SIZE) {
+                patients.addAll(query.apply(List.copyOf(chunk)));
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            patients.addAll(query.apply(chunk));
+        }
+        return patients;
+    }
+
+    // The id is taken up front, it decides the shard
+    @Timed(value = SERVICE_TIMER, extraTags = { "operation", "create" })
     PatientResponseDTO createPatient(PatientRequestDTO patientRequestDTO) {
-        if (patientRepository.existsByEmail(patientRequestDTO.email())) {
-            throw new PatientEmailAlreadyExists(patientRequestDTO.email());
+        var patientId = UuidV7Generator.next();
+        return writeClaimingEmail(patientId, patientRequestDTO.email(), () -> {
+            Patient patient;
+            try {
+                patient = patientRepository.saveAndFlush(toPatient(patientId, patientRequestDTO));
+            } catch (DataIntegrityViolationException e) {
+                throw emailConflictOr(e, patientRequestDTO.email());
+            }
+            patientEmailFilter.add(patient.getEmail());
+            patientChangeLog.record(PatientChangeDTO.Operation.CREATED, List.of(patient.getId()));
+            return patient.toResponseDTO();
+        });
+    }
+
+    /**
+     * Creates every valid request in one transaction. Emails are checked with a
+     * single set-based query, for the emails the filter cannot rule out, and the
+     * inserts go out as JDBC batches, each item reports its own outcome so one bad
+     * row does not reject the others. Should an email the filter ruled out turn
+     * out to be taken (by a writer it has not caught up with yet), the batch is
+     * run again in a new transaction with every email checked, so the filter never
+     * changes what the client sees. Sharded, see createOnShards.
+     */
+    @Timed(value = SERVICE_TIMER, extraTags = { "operation", "batch-create" })
+    List<PatientBatchResultDTO> createPatients(List<PatientRequestDTO> patientRequestDTOs) {
+        if (patientRequestDTOs.size() > PatientsConstants.MAX_BATCH_SIZE) {
+            throw new PatientBatchTooLargeException(
+                    patientRequestDTOs.size() + " > " + PatientsConstants.MAX_BATCH_SIZE);
+        }
+        var rejected = new PatientBatchResultDTO[patientRequestDTOs.size()];
+        var candidates = new ArrayList<Integer>();
+        for (int i = 0; i < patientRequestDTOs.size(); i++) {
+            var request = patientRequestDTOs.get(i);
+            var violations = request == null ? List.of("request: must not be null")
+                    : validator.validate(request).stream()
+                            .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                            .sorted()
+                            .toList();
+            if (violations.isEmpty()) {
+                candidates.add(i);
+            } else {
+                rejected[i] = PatientBatchResultDTO.rejected(i, PatientBatchResultDTO.Status.INVALID, violations);
+            }
+        }
+
+        if (patientShards.isSharded()) {
+            return createOnShards(patientRequestDTOs, rejected, candidates);
+        }
+        try {
+            return transactionTemplate.execute(status -> insertBatch(
+                    patientRequestDTOs, rejected.clone(), candidates, patientEmailFilter::mightContain));
+        } catch (PatientEmailAlreadyExists e) {
+            return transactionTemplate.execute(status -> insertBatch(
+                    patientRequestDTOs, rejected.clone(), candidates, email -> true));
+        }
+    }
+
+    private List<PatientBatchResultDTO> insertBatch(
+            List<PatientRequestDTO> patientRequestDTOs,
+            PatientBatchResultDTO[] results,
+            List<Integer> candidates,
+            Predicate<String> mightBeTaken) {
+        var emails = candidates.stream()
+                .map(i -> patientRequestDTOs.get(i).email())
+                .filter(mightBeTaken)
+                .toList();
+        var taken = emails.isEmpty() ? new HashSet<String>() : new HashSet<>(patientRepository.findExistingEmails(emails));
+        var patients = new ArrayList<Patient>(candidates.size());
+        var created = new ArrayList<Integer>(candidates.size());
+        for (var i : candidates) {
+            var request = patientRequestDTOs.get(i);
+            if (!taken.add(request.email())) { // already stored, or repeated within this batch
+                results[i] = PatientBatchResultDTO.rejected(i, PatientBatchResultDTO.Status.DUPLICATE_EMAIL,
+                        List.of("email: " + request.email() + " is already in use"));
+                continue;
+            }
+            patients.add(toPatient(null, request));
+            created.add(i);
+        }
+
+        List<Patient> saved;
+        try {
+            saved = patientRepository.saveAllAndFlush(patients);
+        } catch (DataIntegrityViolationException e) {
+            throw emailConflictOr(e, "of a batch item");
+        }
+        saved.forEach(patient -> patientEmailFilter.add(patient.getEmail()));
+        patientChangeLog.record(PatientChangeDTO.Operation.CREATED, saved.stream().map(Patient::getId).toList());
+        for (int j = 0; j < saved.size(); j++) {
+            results[created.get(j)] = PatientBatchResultDTO.created(created.get(j), saved.get(j).toResponseDTO());
+        }
+        return List.of(results);
+    }
+
+    /**
+     * Claims the emails of the batch in the directory with one statement, which
+     * also tells the duplicates, then inserts each shard's patients in a
+     * transaction of that shard. A shard that fails drops its claims and reports
+     * its items as FAILED, while the other shards keep their patients; whatever
+     * ends the loop early, no claim of an unwritten shard is left behind.
+     */
+    private List<PatientBatchResultDTO> createOnShards(
+            List<PatientRequestDTO> patientRequestDTOs,
+            PatientBatchResultDTO[] results,
+            List<Integer> candidates) {
+        var patientIds = new LinkedHashMap<String, UUID>();
+        candidates.forEach(i -> patientIds.putIfAbsent(patientRequestDTOs.get(i).email(), UuidV7Generator.next()));
+        var claimed = emailDirectory.claimAll(patientIds);
+        var byShard = new TreeMap<Integer, List<Integer>>();
+        for (var i : candidates) {
+            var email = patientRequestDTOs.get(i).email();
+            if (!claimed.remove(email)) { // held already, or repeated within this batch
+                results[i] = PatientBatchResultDTO.rejected(i, PatientBatchResultDTO.Status.DUPLICATE_EMAIL,
+                        List.of("email: " + email + " is already in use"));
+                continue;
+            }
+            byShard.computeIfAbsent(patientShards.shardOf(patientIds.get(email)), shard -> new ArrayList<>()).add(i);
+        }
+
+        var unwritten = new LinkedHashMap<>(byShard);
+        try {
+            for (var entry : byShard.entrySet()) {
+                var items = entry.getValue();
+                var patients = items.stream()
+                        .map(i -> toPatient(patientIds.get(patientRequestDTOs.get(i).email()), patientRequestDTOs.get(i)))
+                        .toList();
+                try {
+                    var saved = patientShards.write(entry.getKey(), () -> {
+                        var inserted = patientRepository.saveAllAndFlush(patients);
+                        patientChangeLog.record(PatientChangeDTO.Operation.CREATED,
+                                inserted.stream().map(Patient::getId).toList());
+                        return inserted;
+                    });
+                    unwritten.remove(entry.getKey());
+                    for (int j = 0; j < saved.size(); j++) {
+                        results[items.get(j)] = PatientBatchResultDTO.created(items.get(j), saved.get(j).toResponseDTO());
+                    }
+                } catch (RuntimeException e) {
+                    unwritten.remove(entry.getKey());
+                    emailDirectory.releaseAll(patients.stream().collect(Collectors.toMap(Patient::getEmail, Patient::getId)));
+                    for (var i : items) {
+                        results[i] = PatientBatchResultDTO.rejected(i, PatientBatchResultDTO.Status.FAILED,
+                                List.of("shard " + entry.getKey() + ": " + e.getMessage()));
+                    }
+                }
+            }
+        } finally {
+            var leftover = new HashMap<String, UUID>();
+            unwritten.values().forEach(items -> items.forEach(i -> {
+                var email = patientRequestDTOs.get(i).email();
+                leftover.put(email, patientIds.get(email));
+            }));
+            emailDirectory.releaseAll(leftover);
         }
-        var patient = new Patient(
+        return List.of(results);
+    }
+
+    // The only unique key a client can collide with is the email, the id is generated
+    private static RuntimeException emailConflictOr(DataIntegrityViolationException e, String email) {
+        if (e.getMostSpecificCause() instanceof SQLException sqlException
+                && UNIQUE_VIOLATION.equals(sqlException.getSQLState())) {
+            return new PatientEmailAlreadyExists(email);
+        }
+        return e;
+    }
+
+    private static Patient toPatient(UUID patientId, PatientRequestDTO patientRequestDTO) {
+        return new Patient(
+                patientId,
                 patientRequestDTO.name(),
                 patientRequestDTO.email(),
                 patientRequestDTO.address(),
                 patientRequestDTO.dateOfBirth(),
                 patientRequestDTO.dateOfRegistration());
-        var savedPatient = patientRepository.save(patient);
+    }
+
+    @Timed(value = SERVICE_TIMER, extraTags = { "operation", "update" })
+    PatientResponseDTO updatePatient(UUID patientId, PatientRequestDTO updatePatientRequest, Long expectedVersion) {
+        return writeClaimingEmail(patientId, updatePatientRequest.email(), () -> {
+            Optional<Patient> updated;
+            try {
+                updated = expectedVersion == null
+                        ? patientRepository.updateEmailAndAddress(
+                                patientId,
+                                updatePatientRequest.email(),
+                                updatePatientRequest.address())
+                        : patientRepository.updateEmailAndAddress(
+                                patientId,
+                                expectedVersion,
+                                updatePatientRequest.email(),
+                                updatePatientRequest.address());
+            } catch (DataIntegrityViolationException e) {
+                throw emailConflictOr(e, updatePatientRequest.email());
+            }
+            var updatedPatient = updatedOrThrow(patientId, expectedVersion, updated);
+            patientEmailFilter.add(updatedPatient.email());
+            return updatedPatient;
+        });
+    }
 
-        return savedPatient.toResponseDTO();
+    /**
+     * Applies a merge patch with one UPDATE of just the patched columns. An
+     * empty patch changes nothing and answers with the patient as it is.
+     */
+    @Timed(value = SERVICE_TIMER, extraTags = { "operation", "patch" })
+    PatientResponseDTO patchPatient(UUID patientId, PatientPatchDTO patch, Long expectedVersion) {
+        validator.validate(patch).stream().findFirst().ifPresent(violation -> {
+            throw new InvalidPatchException(violation.getPropertyPath() + ": " + violation.getMessage());
+        });
+        return writeClaimingEmail(patientId, patch.email(), () -> {
+            if (patch.isEmpty()) {
+                var patient = patientRepository.findById(patientId)
+                        .orElseThrow(() -> new PatientNotFoundException(patientId.toString()));
+                if (expectedVersion != null && !expectedVersion.equals(patient.getVersion())) {
+                    throw new PatientVersionMismatchException(
+                            patientId + " is no longer at version " + expectedVersion);
+                }
+                return patient.toResponseDTO();
+            }
+            Optional<Patient> patched;
+            try {
+                patched = patientRepository.patch(patientId, expectedVersion, patch);
+            } catch (DataIntegrityViolationException e) {
+                throw emailConflictOr(e, patch.email());
+            }
+            var patchedPatient = updatedOrThrow(patientId, expectedVersion, patched);
+            if (patch.email() != null) {
+                patientEmailFilter.add(patchedPatient.email());
+            }
+            return patchedPatient;
+        });
     }
 
-    PatientResponseDTO updatePatient(UUID patientId, PatientRequestDTO updatePatientRequest) {
-        var patient = patientRepository
-                .findById(patientId)
-                .orElseThrow(() -> new PatientNotFoundException(patientId.toString()));
-        if (patientRepository.existsByEmailAndIdNot(updatePatientRequest.email(), patient.getId())) {
-            throw new PatientEmailAlreadyExists(updatePatientRequest.email());
+    /**
+     * Runs a write of the patient in a transaction on its shard. Sharded, the
+     * email is claimed in the directory first, so no other shard can take it in
+     * the meantime; the claim is dropped again if the write fails, and the email
+     * the patient held before is released once the write has committed.
+     */
+    private PatientResponseDTO writeClaimingEmail(UUID patientId, String email, Supplier<PatientResponseDTO> write) {
+        if (!patientShards.isSharded() || email == null) {
+            return patientShards.write(patientId, write);
         }
-        patient.setEmail(updatePatientRequest.email());
-        patient.setAddress(updatePatientRequest.address());
-        return patientRepository.save(patient).toResponseDTO();
+        var claimed = emailDirectory.claim(email, patientId);
+        EmailWrite written;
+        try {
+            written = patientShards.write(patientId,
+                    () -> new EmailWrite(patientRepository.findEmailForUpdate(patientId), write.get()));
+        } catch (RuntimeException e) {
+            if (claimed) {
+                emailDirectory.release(email, patientId);
+            }
+            throw e;
+        }
+        written.previousEmail()
+                .filter(previous -> !previous.equals(email))
+                .ifPresent(previous -> emailDirectory.release(previous, patientId));
+        return written.patient();
+    }
+
+    private record EmailWrite(Optional<String> previousEmail, PatientResponseDTO patient) {
     }
 
+    private PatientResponseDTO updatedOrThrow(UUID patientId, Long expectedVersion, Optional<Patient> updated) {
+        if (updated.isEmpty() && expectedVersion != null && patientRepository.existsById(patientId)) {
+            throw new PatientVersionMismatchException(patientId + " is no longer at version " + expectedVersion);
+        }
+        var updatedPatient = updated
+                .orElseThrow(() -> new PatientNotFoundException(patientId.toString()))
+                .toResponseDTO();
+        patientChangeLog.record(PatientChangeDTO.Operation.UPDATED, List.of(patientId));
+        patientCache.invalidate(patientId);
+        return updatedPatient;
+    }
+
+    @Timed(value = SERVICE_TIMER, extraTags = { "operation", "delete" })
     void deletePatient(UUID id) {
-        patientRepository.deleteById(id);
+        var email = patientShards.write(id, () -> {
+            var deleted = patientRepository.deleteDirectlyById(id) // only a real delete leaves a tombstone
+                    .orElseThrow(() -> new PatientNotFoundException(id.toString()));
+            patientChangeLog.record(PatientChangeDTO.Operation.DELETED, List.of(id));
+            patientCache.invalidate(id);
+            return deleted;
+        });
+        if (patientShards.isSharded()) {
+            emailDirectory.release(email, id);
+        }
+    }
+
+    /**
+     * Deletes every patient registered before the given date, DELETE_BATCH_SIZE
+     * at a time. Each batch commits on its own together with its tombstones, so a
+     * large cleanup never becomes one long transaction holding all its row locks,
+     * and an interrupted one keeps what it already deleted. Sharded, the shards
+     * are cleaned one after the other, and each batch releases its emails from
+     * the directory once it has committed.
+     */
+    @Timed(value = SERVICE_TIMER, extraTags = { "operation", "delete-bulk" })
+    int deletePatientsRegisteredBefore(LocalDate before) {
+        var deleted = 0;
+        for (int shard = 0; shard < patientShards.count(); shard++) {
+            List<Patient> batch;
+            do {
+                batch = patientShards.write(shard, () -> {
+                    var patients = patientRepository.deleteRegisteredBefore(before, PatientsConstants.DELETE_BATCH_SIZE);
+                    var ids = patients.stream().map(Patient::getId).toList();
+                    patientChangeLog.record(PatientChangeDTO.Operation.DELETED, ids);
+                    patientCache.invalidateAll(ids);
+                    return patients;
+                });
+                if (patientShards.isSharded()) {
+                    emailDirectory.releaseAll(batch.stream().collect(Collectors.toMap(Patient::getEmail, Patient::getId)));
+                }
+                deleted += batch.size();
+            } while (batch.size() == PatientsConstants.DELETE_BATCH_SIZE);
+        }
+        return deleted;
+    }
+
+    /**
+     * Reads the change log after {@code since}. Patients are loaded with one
+     * query for the whole page and reflect their current state.
+     */
+    @Timed(value = SERVICE_TIMER, extraTags = { "operation", "changes" })
+    PatientChangePage getChanges(long since, int size) {
+        // Every shard keeps its own log with its own sequence, there is no single position to read after
+        patientShards.requireUnsharded("change log");
+        patientChangeLog.assignPositions();
+        return readOnlyTransactionTemplate.execute(status -> readChanges(since, size));
+    }
+
+    private PatientChangePage readChanges(long since, int size) {
+        var pageSize = Math.clamp(size, 1, PatientsConstants.MAX_CHANGES_PAGE_SIZE);
+        var entries = patientChangeLog.readAfter(since, pageSize + 1);
+        var hasMore = entries.size() > pageSize;
+        var page = hasMore ? entries.subList(0, pageSize) : entries;
+        var ids = page.stream()
+                .filter(entry -> entry.operation() != PatientChangeDTO.Operation.DELETED)
+                .map(PatientChangeLog.Entry::patientId)
+                .collect(Collectors.toSet());
+        var patients = patientRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Patient::getId, Patient::toResponseDTO));
+        var changes = page.stream()
+                .map(entry -> new PatientChangeDTO(
+                        entry.sequence(),
+                        entry.patientId(),
+                        entry.operation(),
+                        entry.changedAt().toInstant(),
+                        patients.get(entry.patientId())))
+                .toList();
+        return new PatientChangePage(changes, page.isEmpty() ? since : page.getLast().sequence(), hasMore);
+    }
+
+    long getLatestChange() {
+        patientShards.requireUnsharded("change log");
+        patientChangeLog.assignPositions();
+        return patientChangeLog.latest();
     }
 
 }
@@ -0,0 +1,226 @@
+package patientmanagement.patient_service;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Places each patient on one shard by a hash of its id and runs work there, see
+ * ShardRoutingConfiguration. A transaction never spans shards: work for a shard
+ * gets a transaction of its own, started with the route set. Scatter-gather
+ * reads run on every shard in parallel, one virtual thread each. Unsharded, all
+ * of it runs as before, on the one database. Startup is refused when a database
+ * holds patients its place in the layout would strand, see checkLayout.
+ */
+@Component
+class PatientShards {
+    private static final int STREAM_BUFFER_SIZE = 1_000;
+    private static final Object END_OF_SHARD = new Object();
+
+    private final int count;
+    private final TransactionTemplate writes;
+    private final TransactionTemplate reads;
+    private final JdbcTemplate jdbcTemplate;
+
+    PatientShards(
+            PlatformTransactionManager transactionManager,
+            JdbcTemplate jdbcTemplate,
+            @Value("${patients.datasource.shards.urls:}") List<String> shardUrls) {
+        this.count = 1 + (int) shardUrls.stream().filter(url -> !url.isBlank()).count();
+        this.writes = new TransactionTemplate(transactionManager);
+        this.reads = new TransactionTemplate(transactionManager);
+        this.reads.setReadOnly(true);
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Patients are only looked for where shardOf places them, and their emails
+     * only in the directory. A database that already holds patients when it
+     * first starts sharded (a populated primary included) has them in neither
+     * place, and a database recorded under another layout, shard count or
+     * position has them on the wrong shard, so both refuse to start. A primary
+     * that was sharded also refuses to start unsharded.
+     */
+    @PostConstruct
+    void checkLayout() {
+        for (int shard = 0; shard < count; shard++) {
+            var position = shard;
+            write(shard, () -> {
+                if (isSharded() && recordedLayout().isEmpty()) {
+                    if (Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                            "SELECT EXISTS (SELECT 1 FROM patient)", Boolean.class))) {
+                        throw new IllegalStateException("Shard " + position
+                                + " holds patients stored before sharding, they would not be found;"
+                                + " shards must be empty when sharding is enabled");
+                    }
+                    jdbcTemplate.update("INSERT INTO patient_shard (shard, shard_count) VALUES (?, ?)"
+                            + " ON CONFLICT DO NOTHING", position, count); // another node may be starting too
+                }
+                recordedLayout().ifPresent(recorded -> {
+                    if (!recorded.equals(new Layout(position, count))) {
+                        throw new IllegalStateException("Database " + position + " of " + count
+                                + " was shard " + recorded.shard() + " of " + recorded.count()
+                                + ", its patients would not be found");
+                    }
+                });
+                return null;
+            });
+        }
+    }
+
+    private record Layout(int shard, int count) {
+    }
+
+    private Optional<Layout> recordedLayout() {
+        return jdbcTemplate.query("SELECT shard, shard_count FROM patient_shard",
+                (rs, i) -> new Layout(rs.getInt(1), rs.getInt(2))).stream().findFirst();
+    }
+
+    boolean isSharded() {
+        return count > 1;
+    }
+
+    int count() {
+        return count;
+    }
+
+    // The random low bits, not the timestamp, so v7 and v4 ids spread alike and new ids do not cluster
+    int shardOf(UUID patientId) {
+        return Math.floorMod(Long.hashCode(patientId.getLeastSignificantBits()), count);
+    }
+
+    <T> T write(UUID patientId, Supplier<T> work) {
+        return write(shardOf(patientId), work);
+    }
+
+    <T> T write(int shard, Supplier<T> work) {
+        return isSharded() ? inTransaction(writes, shard, work) : writes.execute(status -> work.get());
+    }
+
+    <T> T read(UUID patientId, Supplier<T> work) {
+        return read(shardOf(patientId), work);
+    }
+
+    <T> T read(int shard, Supplier<T> work) {
+        return isSharded() ? inTransaction(reads, shard, work) : work.get();
+    }
+
+    // Results in shard order
+    <T> List<T> readEach(IntFunction<T> work) {
+        if (!isSharded()) {
+            return List.of(work.apply(0));
+        }
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            var results = IntStream.range(0, count)
+                    .mapToObj(shard -> executor.submit(() -> inTransaction(reads, shard, () -> work.apply(shard))))
+                    .toList();
+            return results.stream().map(PatientShards::join).toList();
+        }
+    }
+
+    /**
+     * Streams from every shard at once into {@code sink}, on the calling thread
+     * and in arrival order. Each shard's reader runs in its own read-only
+     * transaction; a bounded buffer holds back readers the sink cannot keep up with.
+     */
+    @SuppressWarnings("unchecked")
+    <T> void streamEach(Consumer<Consumer<T>> reader, Consumer<T> sink) {
+        if (!isSharded()) {
+            reads.executeWithoutResult(status -> reader.accept(sink));
+            return;
+        }
+        var buffer = new ArrayBlockingQueue<Object>(STREAM_BUFFER_SIZE);
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            var readers = IntStream.range(0, count)
+                    .mapToObj(shard -> executor.submit(() -> {
+                        try {
+                            return inTransaction(reads, shard, () -> {
+                                reader.accept(item -> put(buffer, item));
+                                return null;
+                            });
+                        } finally {
+                            put(buffer, END_OF_SHARD);
+                        }
+                    }))
+                    .toList();
+            try {
+                for (int ended = 0; ended < count;) {
+                    var item = buffer.take();
+                    if (item == END_OF_SHARD) {
+                        ended++;
+                    } else {
+                        sink.accept((T) item);
+                    }
+                }
+            } catch (InterruptedException e) {
+                readers.forEach(future -> future.cancel(true));
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Interrupted while streaming shards");
+            } catch (RuntimeException e) {
+                readers.forEach(future -> future.cancel(true));
+                throw e;
+            }
+            readers.forEach(PatientShards::join);
+        }
+    }
+
+    void requireUnsharded(String operation) {
+        if (isSharded()) {
+            throw new ShardingUnsupportedException(operation);
+        }
+    }
+
+    private static <T> T inTransaction(TransactionTemplate template, int shard, Supplier<T> work) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Cannot switch to shard " + shard + " inside a transaction");
+        }
+        ShardRoutingDataSource.route(shard);
+        try {
+            return template.execute(status -> work.get());
+        } finally {
+            ShardRoutingDataSource.clear();
+        }
+    }
+
+    private static void put(BlockingQueue<Object> buffer, Object item) {
+        try {
+            buffer.put(item);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Shard stream cancelled");
+        }
+    }
+
+    private static <T> T join(Future<T> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while reading shards");
+        }
+    }
+}
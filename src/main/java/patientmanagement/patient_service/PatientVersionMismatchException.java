@@ -0,0 +1,7 @@
+package patientmanagement.patient_service;
+
+class PatientVersionMismatchException extends RuntimeException {
+    PatientVersionMismatchException(String errorMessage) {
+        super(errorMessage);
+    }
+}
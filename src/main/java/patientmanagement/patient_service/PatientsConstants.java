@@ -1,5 +1,7 @@
 package patientmanagement.patient_service;
 
+import java.time.Duration;
+
 class PatientsConstants {
     static final String NAME_BLANK = "Name must not be blank";
     static final int NAME_LENGTH = 128;
@@ -7,6 +9,26 @@ class PatientsConstants {
     static final String EMAIL_INVALID = "email is invalid";
     static final String ADDRESS_BLANK = "Address must not be blank";
     static final String DOB_REQUIRED = "Date of Birth is required";
+    static final int DEFAULT_PAGE_SIZE = 50;
+    static final int MAX_PAGE_SIZE = 500;
+    static final int EXPORT_FETCH_SIZE = 1000;
+    static final int MAX_BATCH_SIZE = 1000;
+    static final int IMPORT_BATCH_SIZE = 500;
+    static final int IMPORT_CONCURRENCY = 2;
+    static final int MAX_IMPORT_ERRORS = 100;
+    static final int MAX_RETAINED_IMPORTS = 100;
+    static final int MAX_CSV_RECORD_LENGTH = 8192;
+    static final int MIN_SEARCH_LENGTH = 3; // shortest query that still yields a trigram
+    static final int DEFAULT_SEARCH_LIMIT = 20;
+    static final int MAX_SEARCH_LIMIT = 100;
+    static final int DEFAULT_CHANGES_PAGE_SIZE = 100;
+    static final int MAX_CHANGES_PAGE_SIZE = 1000;
+    static final int MAX_FEED_BACKLOG = 1000; // changes queued per change feed subscriber
+    static final String MERGE_PATCH_JSON = "application/merge-patch+json";
+    static final int DELETE_BATCH_SIZE = 1000;
+    static final int MAX_LOOKUP_SIZE = 1000;
+    static final int LOOKUP_CHUNK_SIZE = 256; // a power of two, so padded IN lists stay at the chunk size
+    static final Duration STALE_CLAIM_AGE = Duration.ofMinutes(10); // far longer than any shard write takes
 
     private PatientsConstants() { // cannot instantiate
     }
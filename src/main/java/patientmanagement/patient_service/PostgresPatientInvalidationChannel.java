@@ -0,0 +1,141 @@
+package patientmanagement.patient_service;
+
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import org.postgresql.PGConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.JdbcConnectionDetails;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Postgres LISTEN/NOTIFY channel. NOTIFY is transactional, so an invalidation
+ * published inside a rolled back transaction is never delivered. The listener
+ * holds its own connection outside the pool. Sharded, an invalidation goes out
+ * on the shard that was written, so there is a listener per shard. Nothing is
+ * delivered while a listener is not yet, or no longer, listening, so every
+ * successful LISTEN tells the subscribers they missed some.
+ */
+@Component
+@ConditionalOnProperty(name = "patients.cache.invalidation-channel", havingValue = "postgres", matchIfMissing = true)
+class PostgresPatientInvalidationChannel implements PatientInvalidationChannel {
+    private static final Logger log = LoggerFactory.getLogger(PostgresPatientInvalidationChannel.class);
+    private static final String CHANNEL = "patient_invalidation";
+    private static final int POLL_TIMEOUT_MILLIS = 500;
+    private static final long RECONNECT_DELAY_MILLIS = 5000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcConnectionDetails connectionDetails;
+    private final List<String> shardUrls;
+    private final String shardUsername;
+    private final String shardPassword;
+    private final List<Consumer<UUID>> listeners = new CopyOnWriteArrayList<>();
+    private final List<Runnable> missedSomeListeners = new CopyOnWriteArrayList<>();
+    private final List<Thread> listenerThreads = new ArrayList<>();
+    private volatile boolean running;
+
+    PostgresPatientInvalidationChannel(
+            JdbcTemplate jdbcTemplate,
+            JdbcConnectionDetails connectionDetails,
+            @Value("${patients.datasource.shards.urls:}") List<String> shardUrls,
+            @Value("${patients.datasource.shards.username:#{null}}") String shardUsername,
+            @Value("${patients.datasource.shards.password:#{null}}") String shardPassword) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.connectionDetails = connectionDetails;
+        this.shardUrls = shardUrls.stream().filter(url -> !url.isBlank()).map(String::strip).toList();
+        this.shardUsername = shardUsername != null ? shardUsername : connectionDetails.getUsername();
+        this.shardPassword = shardPassword != null ? shardPassword : connectionDetails.getPassword();
+    }
+
+    @Override
+    public void publish(Collection<UUID> patientIds) {
+        if (patientIds.isEmpty()) {
+            return;
+        }
+        var payloads = patientIds.stream().map(UUID::toString).collect(Collectors.joining(","));
+        // one round trip for the lot, each id is still its own notification
+        jdbcTemplate.query("SELECT pg_notify(?, id) FROM unnest(string_to_array(?, ',')) AS id",
+                rs -> null, CHANNEL, payloads);
+    }
+
+    @Override
+    public void subscribe(Consumer<UUID> listener, Runnable missedSome) {
+        listeners.add(listener);
+        missedSomeListeners.add(missedSome);
+    }
+
+    @PostConstruct
+    void start() {
+        running = true;
+        var threads = Thread.ofPlatform().daemon().name("patient-invalidation-listener-", 0);
+        listenerThreads.add(threads.start(() -> listen(
+                connectionDetails.getJdbcUrl(), connectionDetails.getUsername(), connectionDetails.getPassword())));
+        for (var shardUrl : shardUrls) {
+            listenerThreads.add(threads.start(() -> listen(shardUrl, shardUsername, shardPassword)));
+        }
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        listenerThreads.forEach(Thread::interrupt);
+        for (var listenerThread : listenerThreads) {
+            listenerThread.join(POLL_TIMEOUT_MILLIS * 2L);
+        }
+    }
+
+    private void listen(String url, String username, String password) {
+        while (running) {
+            try (var connection = DriverManager.getConnection(url, username, password)) {
+                try (var statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                var pgConnection = connection.unwrap(PGConnection.class);
+                log.info("Listening for patient invalidations on {} at {}", CHANNEL, url);
+                missedSomeListeners.forEach(Runnable::run); // anything cached before now may be stale
+                while (running) {
+                    var notifications = pgConnection.getNotifications(POLL_TIMEOUT_MILLIS);
+                    if (notifications == null) {
+                        continue;
+                    }
+                    for (var notification : notifications) {
+                        dispatch(notification.getParameter());
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Invalidation listener lost its connection ({}), reconnecting", e.getMessage());
+                try {
+                    Thread.sleep(RECONNECT_DELAY_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void dispatch(String payload) {
+        try {
+            var patientId = UUID.fromString(payload);
+            listeners.forEach(listener -> listener.accept(patientId));
+        } catch (IllegalArgumentException e) {
+            log.warn("Ignoring malformed invalidation {}", payload);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package patientmanagement.patient_service;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * After a client's successful write, its reads stay on the primary for a
+ * while, so it never reads its own change back from a replica that has not
+ * replayed it yet. Recent writers are remembered per node, in memory.
+ */
+class ReadYourWritesFilter extends OncePerRequestFilter {
+    private static final long MAX_TRACKED_CLIENTS = 100_000;
+
+    private final String clientHeader;
+    private final Cache<String, Boolean> recentWriters;
+
+    ReadYourWritesFilter(String clientHeader, Duration stickyFor) {
+        this.clientHeader = clientHeader;
+        this.recentWriters = Caffeine.newBuilder()
+                .maximumSize(MAX_TRACKED_CLIENTS)
+                .expireAfterWrite(stickyFor)
+                .build();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        var client = AdmissionControlFilter.clientOf(request, clientHeader);
+        if (!AdmissionControlFilter.isRead(request)) {
+            try {
+                filterChain.doFilter(request, response);
+            } finally {
+                if (response.getStatus() < 400) {
+                    recentWriters.put(client, Boolean.TRUE);
+                }
+            }
+        } else if (recentWriters.getIfPresent(client) != null) {
+            ReplicaRoutingDataSource.pinToPrimary();
+            try {
+                filterChain.doFilter(request, response);
+            } finally {
+                ReplicaRoutingDataSource.unpin();
+            }
+        } else {
+            filterChain.doFilter(request, response);
+        }
+    }
+}
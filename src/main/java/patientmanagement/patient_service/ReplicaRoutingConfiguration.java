@@ -0,0 +1,96 @@
+package patientmanagement.patient_service;
+
+import java.time.Duration;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Read replica routing, enabled by setting patients.datasource.replica.url.
+ * The auto-configured DataSource stays the primary and is wrapped, so
+ * connection details, pool settings and metrics keep coming from Spring Boot.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty("patients.datasource.replica.url")
+class ReplicaRoutingConfiguration {
+
+    @Bean
+    static ReplicaRoutingPostProcessor replicaRoutingPostProcessor(
+            Environment environment,
+            ObjectProvider<MeterRegistry> meterRegistry) {
+        return new ReplicaRoutingPostProcessor(environment, meterRegistry);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "patients.datasource.replica.sticky-for")
+    FilterRegistrationBean<ReadYourWritesFilter> readYourWritesFilter(
+            @Value("${patients.admission.client-header:X-Client-Id}") String clientHeader,
+            @Value("${patients.datasource.replica.sticky-for}") Duration stickyFor) {
+        var registration = new FilterRegistrationBean<>(new ReadYourWritesFilter(clientHeader, stickyFor));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 20); // behind admission control
+        return registration;
+    }
+
+    static class ReplicaRoutingPostProcessor implements BeanPostProcessor, DisposableBean {
+        private static final String PREFIX = "patients.datasource.replica.";
+
+        private final Environment environment;
+        private final ObjectProvider<MeterRegistry> meterRegistry;
+        private HikariDataSource replica;
+
+        ReplicaRoutingPostProcessor(Environment environment, ObjectProvider<MeterRegistry> meterRegistry) {
+            this.environment = environment;
+            this.meterRegistry = meterRegistry;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (!"dataSource".equals(beanName) || !(bean instanceof DataSource primary)) {
+                return bean;
+            }
+            replica = new HikariDataSource();
+            replica.setPoolName("replica");
+            replica.setJdbcUrl(environment.getRequiredProperty(PREFIX + "url"));
+            replica.setReadOnly(true);
+            if (primary instanceof HikariDataSource hikari) { // same credentials and size unless overridden
+                replica.setUsername(hikari.getUsername());
+                replica.setPassword(hikari.getPassword());
+                if (hikari.getMaximumPoolSize() > 0) {
+                    replica.setMaximumPoolSize(hikari.getMaximumPoolSize());
+                }
+            }
+            replica.setUsername(environment.getProperty(PREFIX + "username", replica.getUsername()));
+            replica.setPassword(environment.getProperty(PREFIX + "password", replica.getPassword()));
+            Integer maximumPoolSize = environment.getProperty(PREFIX + "maximum-pool-size", Integer.class);
+            if (maximumPoolSize != null) {
+                replica.setMaximumPoolSize(maximumPoolSize);
+            }
+            meterRegistry.ifAvailable(registry -> replica.setMetricsTrackerFactory(
+                    new MicrometerMetricsTrackerFactory(registry)));
+            return new LazyConnectionDataSourceProxy(new ReplicaRoutingDataSource(primary, replica));
+        }
+
+        @Override
+        public void destroy() {
+            if (replica != null) {
+                replica.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package patientmanagement.patient_service;
+
+import java.util.Map;
+import java.util.function.Supplier;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Sends read-only transactions to the replica and everything else, including
+ * work outside a transaction, to the primary. It must sit behind a
+ * LazyConnectionDataSourceProxy, so the connection is only chosen once the
+ * transaction's read-only flag has been set.
+ */
+class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+    private static final ThreadLocal<Boolean> pinnedToPrimary = new ThreadLocal<>();
+
+    enum Target {
+        PRIMARY, REPLICA
+    }
+
+    ReplicaRoutingDataSource(DataSource primary, DataSource replica) {
+        setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    // Read-your-writes: reads on this thread go to the primary until unpinned
+    static void pinToPrimary() {
+        pinnedToPrimary.set(Boolean.TRUE);
+    }
+
+    static void unpin() {
+        pinnedToPrimary.remove();
+    }
+
+    // Runs work on the primary, restoring this thread's pin afterwards
+    static <T> T onPrimary(Supplier<T> work) {
+        var pinned = pinnedToPrimary.get();
+        pinToPrimary();
+        try {
+            return work.get();
+        } finally {
+            pinnedToPrimary.set(pinned);
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly() && pinnedToPrimary.get() == null
+                ? Target.REPLICA
+                : Target.PRIMARY;
+    }
+}
@@ -0,0 +1,108 @@
+package patientmanagement.patient_service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Hash sharding, enabled by listing the shards beyond the primary in
+ * patients.datasource.shards.urls. The auto-configured DataSource becomes shard
+ * 0 and is wrapped as for replica routing, which it cannot be combined with.
+ * The other shards are migrated to the current schema on startup. Every shard,
+ * the primary included, must be empty the first time it starts sharded, see
+ * PatientShards.checkLayout.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty("patients.datasource.shards.urls")
+class ShardRoutingConfiguration {
+
+    @Bean
+    static ShardRoutingPostProcessor shardRoutingPostProcessor(
+            Environment environment,
+            ObjectProvider<MeterRegistry> meterRegistry) {
+        return new ShardRoutingPostProcessor(environment, meterRegistry);
+    }
+
+    static class ShardRoutingPostProcessor implements BeanPostProcessor, DisposableBean {
+        private static final String PREFIX = "patients.datasource.shards.";
+        private static final String MIGRATIONS = "classpath:db/migration";
+
+        private final Environment environment;
+        private final ObjectProvider<MeterRegistry> meterRegistry;
+        private final List<HikariDataSource> shards = new ArrayList<>();
+
+        ShardRoutingPostProcessor(Environment environment, ObjectProvider<MeterRegistry> meterRegistry) {
+            this.environment = environment;
+            this.meterRegistry = meterRegistry;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (!"dataSource".equals(beanName) || !(bean instanceof DataSource primary)) {
+                return bean;
+            }
+            var urls = environment.getRequiredProperty(PREFIX + "urls", String[].class);
+            if (urls.length == 0) {
+                return bean;
+            }
+            if (environment.containsProperty("patients.datasource.replica.url")) {
+                throw new IllegalStateException("Sharding and read replica routing cannot be combined");
+            }
+            var targets = new ArrayList<DataSource>(List.of(primary));
+            for (var url : urls) {
+                var shard = new HikariDataSource();
+                shard.setPoolName("shard-" + targets.size());
+                shard.setJdbcUrl(url.strip());
+                if (primary instanceof HikariDataSource hikari) { // same credentials and size unless overridden
+                    shard.setUsername(hikari.getUsername());
+                    shard.setPassword(hikari.getPassword());
+                    if (hikari.getMaximumPoolSize() > 0) {
+                        shard.setMaximumPoolSize(hikari.getMaximumPoolSize());
+                    }
+                }
+                shard.setUsername(environment.getProperty(PREFIX + "username", shard.getUsername()));
+                shard.setPassword(environment.getProperty(PREFIX + "password", shard.getPassword()));
+                Integer maximumPoolSize = environment.getProperty(PREFIX + "maximum-pool-size", Integer.class);
+                if (maximumPoolSize != null) {
+                    shard.setMaximumPoolSize(maximumPoolSize);
+                }
+                meterRegistry.ifAvailable(registry -> shard.setMetricsTrackerFactory(
+                        new MicrometerMetricsTrackerFactory(registry)));
+                shards.add(shard);
+                Flyway.configure()
+                        .dataSource(shard)
+                        .locations(MIGRATIONS)
+                        .baselineOnMigrate(true)
+                        .baselineVersion("0")
+                        .mixed(true) // as spring.flyway.mixed and transactional-lock, for the concurrent index builds
+                        .configuration(Map.of("flyway.postgresql.transactional.lock", "false"))
+                        .load()
+                        .migrate();
+                targets.add(shard);
+            }
+            return new LazyConnectionDataSourceProxy(new ShardRoutingDataSource(targets));
+        }
+
+        @Override
+        public void destroy() {
+            shards.forEach(HikariDataSource::close);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package patientmanagement.patient_service;
+
+import java.util.HashMap;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+/**
+ * Sends work to the shard routed to on the current thread, and to shard 0, the
+ * primary, when there is none. Like ReplicaRoutingDataSource it must sit behind
+ * a LazyConnectionDataSourceProxy, so the connection is only chosen once the
+ * transaction has started with its shard set. See PatientShards.
+ */
+class ShardRoutingDataSource extends AbstractRoutingDataSource {
+    private static final ThreadLocal<Integer> currentShard = new ThreadLocal<>();
+
+    ShardRoutingDataSource(List<DataSource> shards) {
+        var targets = new HashMap<Object, Object>();
+        for (int shard = 0; shard < shards.size(); shard++) {
+            targets.put(shard, shards.get(shard));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(shards.getFirst());
+        afterPropertiesSet();
+    }
+
+    static void route(int shard) {
+        currentShard.set(shard);
+    }
+
+    static void clear() {
+        currentShard.remove();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return currentShard.get();
+    }
+}
@@ -0,0 +1,7 @@
+package patientmanagement.patient_service;
+
+class ShardingUnsupportedException extends RuntimeException {
+    ShardingUnsupportedException(String errorMessage) {
+        super(errorMessage);
+    }
+}
@@ -0,0 +1,54 @@
+package patientmanagement.patient_service;
+
+import java.security.SecureRandom;
+import java.util.EnumSet;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.generator.EventTypeSets;
+
+/**
+ * Time-ordered UUIDv7 (RFC 9562): 48 bits of Unix milliseconds, then a 12 bit
+ * counter, then 62 random bits. New keys land at the right edge of the primary
+ * key index instead of on a random page. Ids are monotonic within this JVM:
+ * when more than 4096 are taken in one millisecond, or the clock steps back,
+ * the counter carries into the timestamp rather than repeating it. An id
+ * assigned before the insert is kept.
+ *
+ * @see UuidV7
+ */
+class UuidV7Generator implements BeforeExecutionGenerator {
+    private static final SecureRandom random = new SecureRandom();
+    // unix millis << 12 | counter of the last id handed out
+    private static final AtomicLong last = new AtomicLong();
+
+    static UUID next() {
+        var now = System.currentTimeMillis() << 12;
+        var timeAndCounter = last.updateAndGet(previous -> Math.max(now, previous + 1));
+        var msb = (timeAndCounter >>> 12) << 16 | 0x7000L | timeAndCounter & 0xFFFL;
+        var lsb = random.nextLong() & 0x3FFFFFFFFFFFFFFFL | 0x8000000000000000L;
+        return new UUID(msb, lsb);
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object owner, Object currentValue,
+            EventType eventType) {
+        // Hibernate does not pass an assigned id as currentValue on persist, it is read off the entity
+        var assigned = currentValue != null ? currentValue
+                : session.getEntityPersister(null, owner).getIdentifier(owner, session);
+        return assigned != null ? assigned : next();
+    }
+
+    @Override
+    public boolean allowAssignedIdentifiers() {
+        return true;
+    }
+
+    @Override
+    public EnumSet<EventType> getEventTypes() {
+        return EventTypeSets.INSERT_ONLY;
+    }
+}
@@ -0,0 +1,9 @@
+CREATE TABLE IF NOT EXISTS patient
+(
+    id                      UUID PRIMARY KEY,
+    name                    VARCHAR(255)        NOT NULL,
+    email                   VARCHAR(255) UNIQUE NOT NULL,
+    address                 VARCHAR(255)        NOT NULL,
+    date_of_birth           DATE                NOT NULL,
+    date_of_registration    DATE                NOT NULL
+);
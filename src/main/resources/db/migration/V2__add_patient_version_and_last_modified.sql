@@ -0,0 +1,3 @@
+-- Optimistic locking and conditional GETs
+ALTER TABLE patient ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE patient ADD COLUMN IF NOT EXISTS last_modified TIMESTAMP(6) WITH TIME ZONE NOT NULL DEFAULT now();
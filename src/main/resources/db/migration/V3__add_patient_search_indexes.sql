@@ -0,0 +1,7 @@
+-- flyway:executeInTransaction=false
+-- Trigram indexes back GET /search: substring (ILIKE) and fuzzy (<%) matches without a scan.
+-- Built concurrently, so writes carry on while a large table is indexed. A build that fails part way leaves an
+-- INVALID index behind, which IF NOT EXISTS would then skip: drop it before running the migration again
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS patient_name_trgm_idx ON patient USING gin (name gin_trgm_ops);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS patient_address_trgm_idx ON patient USING gin (address gin_trgm_ops);
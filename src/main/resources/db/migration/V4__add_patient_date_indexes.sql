@@ -0,0 +1,4 @@
+-- flyway:executeInTransaction=false
+-- B-tree indexes for the date range filters on the list endpoint, built concurrently
+CREATE INDEX CONCURRENTLY IF NOT EXISTS patient_date_of_birth_idx ON patient (date_of_birth);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS patient_date_of_registration_idx ON patient (date_of_registration);
@@ -0,0 +1,8 @@
+-- Ordered change log behind GET /changes, appended in the same transaction as the change
+CREATE TABLE IF NOT EXISTS patient_change
+(
+    seq         BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+    patient_id  UUID                        NOT NULL,
+    operation   VARCHAR(16)                 NOT NULL,
+    changed_at  TIMESTAMP(6) WITH TIME ZONE NOT NULL DEFAULT now()
+);
@@ -0,0 +1,7 @@
+-- Email directory of a sharded deployment, kept on the primary (shard 0): which patient holds an email.
+-- Enforces email uniqueness across shards; unused, and empty, without sharding
+CREATE TABLE IF NOT EXISTS patient_email
+(
+    email       VARCHAR(255) PRIMARY KEY,
+    patient_id  UUID         NOT NULL
+);
@@ -0,0 +1,8 @@
+-- Which shard of how many this database is, recorded the first time it starts sharded and checked on every
+-- start after, so patients are never stranded on a database that is not where their id places them
+CREATE TABLE IF NOT EXISTS patient_shard
+(
+    singleton   BOOLEAN PRIMARY KEY DEFAULT TRUE CHECK (singleton),
+    shard       INT NOT NULL,
+    shard_count INT NOT NULL
+);
@@ -0,0 +1,3 @@
+-- When each email was claimed, so a claim left behind by a write that never reached its shard can be told
+-- from one whose write is still in flight, see PatientEmailDirectory
+ALTER TABLE patient_email ADD COLUMN IF NOT EXISTS claimed_at TIMESTAMPTZ NOT NULL DEFAULT now();
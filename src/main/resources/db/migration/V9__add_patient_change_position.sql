@@ -0,0 +1,8 @@
+-- Change log positions are handed out by readers, in commit safe order, instead of writers taking a global lock:
+-- a change gets one once no transaction older than its own (xid) is still running, see PatientChangeLog.
+-- Changes logged so far were appended under that lock, so their sequence already is a position
+ALTER TABLE patient_change ADD COLUMN IF NOT EXISTS xid xid8 NOT NULL DEFAULT pg_current_xact_id();
+ALTER TABLE patient_change ADD COLUMN IF NOT EXISTS position BIGINT;
+UPDATE patient_change SET position = seq WHERE position IS NULL;
+CREATE UNIQUE INDEX IF NOT EXISTS idx_patient_change_position ON patient_change (position);
+CREATE INDEX IF NOT EXISTS idx_patient_change_unpositioned ON patient_change (seq) WHERE position IS NULL;
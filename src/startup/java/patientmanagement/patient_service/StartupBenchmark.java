@@ -0,0 +1,177 @@
+package patientmanagement.patient_service;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Starts the packaged application in each startup mode and reports the time from
+ * process start to the first answered GET /api/v1/patients, and the resident set
+ * size right after it. CDS modes first record their archive with a training run
+ * that exits once the context is refreshed. Modes: jvm, cds, aot, aot-cds and
+ * native (the image built by -Pnative native:compile, skipped when absent).
+ *
+ * <pre>StartupBenchmark &lt;application.jar&gt; &lt;modes, e.g. jvm,aot-cds&gt; &lt;runs&gt; [application args...]</pre>
+ */
+public class StartupBenchmark {
+    private static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(2);
+
+    record Result(String mode, long millisToFirstRequest, long rssKb) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        var jar = new File(args[0]).getAbsoluteFile();
+        var modes = args[1].split(",");
+        var runs = Integer.parseInt(args[2]);
+        var applicationArgs = Arrays.asList(args).subList(3, args.length);
+
+        var workDir = new File(jar.getParentFile(), "startup");
+        var extracted = new File(workDir, jar.getName());
+        run(workDir, "extract", List.of(java(), "-Djarmode=tools", "-jar", jar.getPath(),
+                "extract", "--force", "--destination", workDir.getPath()));
+
+        var results = new ArrayList<Result>();
+        for (var mode : modes) {
+            var command = command(mode, jar, extracted, workDir, applicationArgs);
+            if (command == null) {
+                System.out.println("Skipping " + mode + ", no native image at " + nativeImage(jar));
+                continue;
+            }
+            for (var i = 0; i < runs; i++) {
+                results.add(measure(mode, command, new File(workDir, mode + "-" + i + ".log")));
+            }
+        }
+
+        System.out.printf("%-10s %22s %14s%n", "mode", "first request (ms)", "RSS (MB)");
+        for (var mode : modes) {
+            var ofMode = results.stream().filter(r -> r.mode().equals(mode)).toList();
+            if (!ofMode.isEmpty()) {
+                System.out.printf("%-10s %22d %14d%n", mode,
+                        median(ofMode.stream().mapToLong(Result::millisToFirstRequest).toArray()),
+                        median(ofMode.stream().mapToLong(Result::rssKb).toArray()) / 1024);
+            }
+        }
+    }
+
+    private static List<String> command(String mode, File jar, File extracted, File workDir,
+            List<String> applicationArgs) throws IOException, InterruptedException {
+        var command = new ArrayList<String>();
+        switch (mode) {
+            case "jvm", "aot", "cds", "aot-cds" -> {
+                var jvm = new ArrayList<String>();
+                if (mode.startsWith("aot")) {
+                    jvm.add("-Dspring.aot.enabled=true");
+                }
+                if (mode.endsWith("cds")) {
+                    var archive = new File(workDir, mode + ".jsa");
+                    var training = new ArrayList<>(List.of(java(), "-XX:ArchiveClassesAtExit=" + archive));
+                    training.addAll(jvm);
+                    training.addAll(List.of("-Dspring.context.exit=onRefresh", "-jar", extracted.getPath()));
+                    training.addAll(applicationArgs);
+                    run(workDir, mode + "-training", training);
+                    jvm.add("-XX:SharedArchiveFile=" + archive);
+                }
+                command.add(java());
+                command.addAll(jvm);
+                command.addAll(List.of("-jar", extracted.getPath()));
+            }
+            case "native" -> {
+                if (!nativeImage(jar).canExecute()) {
+                    return null;
+                }
+                command.add(nativeImage(jar).getPath());
+            }
+            default -> throw new IllegalArgumentException("Unknown startup mode: " + mode);
+        }
+        command.addAll(applicationArgs);
+        return command;
+    }
+
+    private static Result measure(String mode, List<String> command, File log) throws Exception {
+        var port = freePort();
+        var withPort = new ArrayList<>(command);
+        withPort.add("--server.port=" + port);
+
+        var client = HttpClient.newHttpClient();
+        var request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/v1/patients?size=1"))
+                .timeout(Duration.ofSeconds(1))
+                .build();
+        var started = System.nanoTime();
+        var process = new ProcessBuilder(withPort).redirectErrorStream(true).redirectOutput(log).start();
+        try {
+            while (true) {
+                if (!process.isAlive() || System.nanoTime() - started > STARTUP_TIMEOUT.toNanos()) {
+                    throw new IllegalStateException(mode + " did not answer a request, see " + log);
+                }
+                try {
+                    if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                        break;
+                    }
+                } catch (IOException e) {
+                    // not listening yet
+                }
+                Thread.sleep(10);
+            }
+            var result = new Result(mode, Duration.ofNanos(System.nanoTime() - started).toMillis(), rssKb(process));
+            System.out.printf("%s: first request after %d ms, RSS %d MB%n",
+                    mode, result.millisToFirstRequest(), result.rssKb() / 1024);
+            return result;
+        } finally {
+            process.destroy();
+            process.waitFor();
+        }
+    }
+
+    private static void run(File workDir, String name, List<String> command) throws IOException, InterruptedException {
+        Files.createDirectories(workDir.toPath());
+        var log = new File(workDir, name + ".log");
+        var exitCode = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(log).start().waitFor();
+        if (exitCode != 0) {
+            throw new IllegalStateException(name + " failed with exit code " + exitCode + ", see " + log);
+        }
+    }
+
+    // Linux only, reports 0 elsewhere
+    private static long rssKb(Process process) throws IOException {
+        var status = Path.of("/proc", String.valueOf(process.pid()), "status");
+        if (!Files.exists(status)) {
+            return 0;
+        }
+        return Files.readAllLines(status).stream()
+                .filter(line -> line.startsWith("VmRSS:"))
+                .mapToLong(line -> Long.parseLong(line.replaceAll("\\D", "")))
+                .findFirst()
+                .orElse(0);
+    }
+
+    // Mean of the two middle values for an even count
+    private static long median(long[] values) {
+        Arrays.sort(values);
+        var middle = values.length / 2;
+        return values.length % 2 == 1 ? values[middle] : (values[middle - 1] + values[middle]) / 2;
+    }
+
+    private static int freePort() throws IOException {
+        try (var socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static File nativeImage(File jar) {
+        return new File(jar.getParentFile(), "patient-service");
+    }
+
+    private static String java() {
+        return Path.of(System.getProperty("java.home"), "bin", "java").toString();
+    }
+}
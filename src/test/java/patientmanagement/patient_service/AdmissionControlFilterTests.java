@@ -0,0 +1,101 @@
+package patientmanagement.patient_service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+class AdmissionControlFilterTests {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private AdmissionControlFilter filter(int maxInFlight) {
+        // Bursts of 2 and a refill far slower than the test, so the third request is always over budget
+        return new AdmissionControlFilter("X-Client-Id", 0.01, 2, 0.01, 2, maxInFlight, meterRegistry, new ObjectMapper());
+    }
+
+    private static MockHttpServletRequest request(String method, String client) {
+        var request = new MockHttpServletRequest(method, "/api/v1/patients");
+        request.addHeader("X-Client-Id", client);
+        return request;
+    }
+
+    private static MockHttpServletResponse send(AdmissionControlFilter filter, MockHttpServletRequest request)
+            throws Exception {
+        var response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    @Test
+    void shouldRateLimitEachClientAndKindSeparately() throws Exception {
+        var filter = filter(10);
+        assertThat(send(filter, request("GET", "noisy")).getStatus()).isEqualTo(HttpStatus.OK.value());
+        assertThat(send(filter, request("GET", "noisy")).getStatus()).isEqualTo(HttpStatus.OK.value());
+
+        var rejected = send(filter, request("GET", "noisy"));
+        assertThat(rejected.getStatus()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS.value());
+        assertThat(Long.parseLong(rejected.getHeader(HttpHeaders.RETRY_AFTER))).isPositive();
+        assertThat(rejected.getContentAsString()).contains("Too many reads from noisy");
+
+        assertThat(send(filter, request("POST", "noisy")).getStatus()).isEqualTo(HttpStatus.OK.value());
+        assertThat(send(filter, request("GET", "quiet")).getStatus()).isEqualTo(HttpStatus.OK.value());
+        assertThat(meterRegistry.get("patients.admission.rejected")
+                .tag("reason", "rate-limit").tag("kind", "read").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldCountLookupsAsReads() throws Exception {
+        var filter = filter(10);
+        assertThat(send(filter, request("POST", "scheduler")).getStatus()).isEqualTo(HttpStatus.OK.value());
+        assertThat(send(filter, request("POST", "scheduler")).getStatus()).isEqualTo(HttpStatus.OK.value());
+
+        var lookup = request("POST", "scheduler");
+        lookup.setRequestURI("/api/v1/patients/lookup");
+        assertThat(send(filter, lookup).getStatus()).isEqualTo(HttpStatus.OK.value());
+    }
+
+    @Test
+    void shouldShedRequestsBeyondTheInFlightLimit() throws Exception {
+        var filter = filter(1);
+        var nested = new AtomicReference<MockHttpServletResponse>();
+        var slowServlet = new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) {
+                try { // a second client arrives while this request still holds the only slot
+                    nested.set(send(filter, request("GET", "other")));
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        };
+        var response = new MockHttpServletResponse();
+        filter.doFilter(request("GET", "first"), response, new MockFilterChain(slowServlet));
+
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+        assertThat(nested.get().getStatus()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE.value());
+        assertThat(nested.get().getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+        assertThat(meterRegistry.get("patients.admission.in-flight").gauge().value()).isZero();
+        assertThat(send(filter, request("GET", "other")).getStatus()).isEqualTo(HttpStatus.OK.value());
+    }
+
+    @Test
+    void shouldLeaveNonApiPathsAlone() throws Exception {
+        var filter = filter(0);
+        var response = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/actuator/health"), response, new MockFilterChain());
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+    }
+}
@@ -0,0 +1,34 @@
+package patientmanagement.patient_service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.stream.IntStream;
+
+import org.assertj.core.data.Percentage;
+import org.junit.jupiter.api.Test;
+
+class BloomFilterTests {
+    private static final int ENTRIES = 100_000;
+
+    @Test
+    void shouldNeverMissAnAddedValue() {
+        var filter = new BloomFilter(ENTRIES, 0.01);
+        IntStream.range(0, ENTRIES).forEach(i -> filter.put("patient." + i + "@example.com"));
+
+        assertThat(IntStream.range(0, ENTRIES)).allMatch(i -> filter.mightContain("patient." + i + "@example.com"));
+        assertThat(filter.approximateEntries()).isCloseTo(ENTRIES, Percentage.withPercentage(2));
+    }
+
+    @Test
+    void shouldKeepFalsePositivesNearTheTargetRateWhenFull() {
+        var filter = new BloomFilter(ENTRIES, 0.01);
+        IntStream.range(0, ENTRIES).forEach(i -> filter.put("patient." + i + "@example.com"));
+
+        var falsePositives = IntStream.range(0, ENTRIES)
+                .filter(i -> filter.mightContain("other." + i + "@example.org"))
+                .count();
+        assertThat((double) falsePositives / ENTRIES).isLessThan(0.015);
+        assertThat(filter.expectedFalsePositiveRate()).isBetween(0.005, 0.015);
+        assertThat(filter.sizeInBytes()).isBetween(110_000L, 130_000L); // ~9.6 bits per entry at 1%
+    }
+}
@@ -0,0 +1,171 @@
+package patientmanagement.patient_service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class PatientCacheTests {
+    private static final UUID ID = UUID.fromString("123e4567-e89b-12d3-a456-426614174000");
+
+    private PatientCache patientCache;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        patientCache = new PatientCache(100, Duration.ofMinutes(5), new LocalPatientInvalidationChannel(), meterRegistry);
+    }
+
+    private static PatientResponseDTO patient(String email) {
+        return new PatientResponseDTO(ID, "Blue Sayama", email, "112 Mobin St., Crowsand",
+                LocalDate.of(1992, 9, 15), LocalDate.of(2024, 11, 7));
+    }
+
+    @Test
+    void shouldLoadOnceAndServeFromCache() {
+        var loads = new AtomicInteger();
+        for (int i = 0; i < 3; i++) {
+            var found = patientCache.getById(ID, id -> {
+                loads.incrementAndGet();
+                return Optional.of(patient("blue.sayama@example.com"));
+            });
+            assertThat(found).isPresent();
+        }
+        assertThat(loads).hasValue(1);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "patients.by-id").tag("result", "hit")
+                .functionCounter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldCoalesceConcurrentMisses() throws Exception {
+        var loads = new AtomicInteger();
+        var release = new CountDownLatch(1);
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            var lookups = IntStream.range(0, 8)
+                    .mapToObj(i -> executor.submit(() -> patientCache.getById(ID, id -> {
+                        loads.incrementAndGet();
+                        try {
+                            release.await();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        return Optional.of(patient("blue.sayama@example.com"));
+                    })))
+                    .toList();
+            Thread.sleep(100);
+            release.countDown();
+            for (var lookup : lookups) {
+                assertThat(lookup.get()).isPresent();
+            }
+        }
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void shouldNotCacheAbsentPatients() {
+        var loads = new AtomicInteger();
+        patientCache.getById(ID, id -> {
+            loads.incrementAndGet();
+            return Optional.empty();
+        });
+        var found = patientCache.getById(ID, id -> {
+            loads.incrementAndGet();
+            return Optional.of(patient("blue.sayama@example.com"));
+        });
+        assertThat(found).isPresent();
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void shouldNotServeAnOldEmailAfterInvalidation() {
+        patientCache.getByEmail("blue.sayama@example.com", email -> Optional.of(patient(email)));
+        patientCache.invalidate(ID);
+
+        var moved = patientCache.getById(ID, id -> Optional.of(patient("blue.moved@example.com")));
+        assertThat(moved).map(PatientResponseDTO::email).contains("blue.moved@example.com");
+        var oldEmail = patientCache.getByEmail("blue.sayama@example.com", email -> Optional.empty());
+        assertThat(oldEmail).isEmpty();
+    }
+
+    @Test
+    void shouldNotKeepAnEmailLoadThatRacedWithAnUpdate() {
+        var stored = new AtomicReference<>(patient("blue.sayama@example.com"));
+        var reads = new AtomicInteger();
+        var found = patientCache.getByEmail("blue.sayama@example.com", email -> {
+            var read = stored.get();
+            if (reads.incrementAndGet() == 1) { // an update commits right after this read
+                stored.set(new PatientResponseDTO(ID, "Blue Sayama", email, "7 Moved Rd., Allsbury",
+                        LocalDate.of(1992, 9, 15), LocalDate.of(2024, 11, 7)));
+                patientCache.invalidate(ID);
+            }
+            return Optional.of(read);
+        });
+
+        assertThat(found).map(PatientResponseDTO::address).contains("7 Moved Rd., Allsbury");
+        var cached = patientCache.getById(ID, id -> Optional.empty());
+        assertThat(cached).map(PatientResponseDTO::address).contains("7 Moved Rd., Allsbury");
+    }
+
+    @Test
+    void shouldNotKeepABulkLoadThatRacedWithAnUpdate() {
+        var stored = new AtomicReference<>(patient("blue.sayama@example.com"));
+        var found = patientCache.getAllById(List.of(ID), ids -> {
+            var read = stored.get();
+            // an update commits right after this read
+            stored.set(new PatientResponseDTO(ID, "Blue Sayama", "blue.sayama@example.com", "7 Moved Rd., Allsbury",
+                    LocalDate.of(1992, 9, 15), LocalDate.of(2024, 11, 7)));
+            patientCache.invalidate(ID);
+            return Map.of(ID, read);
+        });
+
+        assertThat(found).containsKey(ID);
+        var cached = patientCache.getById(ID, id -> Optional.of(stored.get()));
+        assertThat(cached).map(PatientResponseDTO::address).contains("7 Moved Rd., Allsbury");
+    }
+
+    @Test
+    void shouldServeBulkLoadsFromCacheOnceLoaded() {
+        var loads = new AtomicInteger();
+        for (int i = 0; i < 2; i++) {
+            var found = patientCache.getAllById(List.of(ID), ids -> {
+                loads.incrementAndGet();
+                return Map.of(ID, patient("blue.sayama@example.com"));
+            });
+            assertThat(found).containsOnlyKeys(ID);
+        }
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void shouldDropEverythingWhenTheChannelMayHaveMissedInvalidations() {
+        var missedSome = new AtomicReference<Runnable>();
+        patientCache = new PatientCache(100, Duration.ofMinutes(5), new LocalPatientInvalidationChannel() {
+            @Override
+            public void subscribe(Consumer<UUID> listener, Runnable missed) {
+                missedSome.set(missed);
+            }
+        }, meterRegistry);
+        patientCache.getByEmail("blue.sayama@example.com", email -> Optional.of(patient(email)));
+
+        missedSome.get().run();
+
+        assertThat(patientCache.getIfPresent(ID)).isEmpty();
+        assertThat(patientCache.getIfPresentByEmail("blue.sayama@example.com")).isEmpty();
+    }
+}
@@ -0,0 +1,51 @@
+package patientmanagement.patient_service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.junit.jupiter.api.Test;
+
+class PatientCsvReaderTests {
+
+    private static PatientCsvReader reader(String csv, int maxRecordLength) {
+        return new PatientCsvReader(new BufferedReader(new StringReader(csv)), maxRecordLength);
+    }
+
+    @Test
+    void shouldReadPlainAndQuotedFields() throws IOException {
+        var csv = reader("""
+                name,address
+                Blue Sayama,"112 Mobin St., Crowsand"
+                "Akane ""Ak"" Wilson","358 Mobin St.
+                Crowsand"
+                """, 1024);
+        assertThat(csv.readRecord()).containsExactly("name", "address");
+        assertThat(csv.readRecord()).containsExactly("Blue Sayama", "112 Mobin St., Crowsand");
+        assertThat(csv.recordLineNumber()).isEqualTo(2);
+        assertThat(csv.readRecord()).containsExactly("Akane \"Ak\" Wilson", "358 Mobin St.\nCrowsand");
+        assertThat(csv.recordLineNumber()).isEqualTo(3);
+        assertThat(csv.readRecord()).isNull();
+    }
+
+    @Test
+    void shouldHandleCrLfAndMissingTrailingNewline() throws IOException {
+        var csv = reader("a,b\r\nc,\r\nd,e", 1024);
+        assertThat(csv.readRecord()).containsExactly("a", "b");
+        assertThat(csv.readRecord()).containsExactly("c", "");
+        assertThat(csv.readRecord()).containsExactly("d", "e");
+        assertThat(csv.readRecord()).isNull();
+    }
+
+    @Test
+    void shouldRejectAnOverlongRecordAndCarryOn() throws IOException {
+        var csv = reader("short\n" + "x".repeat(100) + "\nnext\n", 16);
+        assertThat(csv.readRecord()).containsExactly("short");
+        assertThatThrownBy(csv::readRecord).isInstanceOf(PatientCsvReader.CsvRecordTooLongException.class);
+        assertThat(csv.readRecord()).containsExactly("next");
+        assertThat(csv.recordLineNumber()).isEqualTo(3);
+    }
+}
@@ -3,34 +3,61 @@ package patientmanagement.patient_service;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatCode;
 
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
 import java.time.LocalDate;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
 
+import org.flywaydb.core.Flyway;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.context.annotation.Import;
+import org.springframework.core.io.ByteArrayResource;
 import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.util.LinkedMultiValueMap;
 
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
 import com.jayway.jsonpath.JsonPath;
 
 import net.minidev.json.JSONArray;
 
 /**
- * Important the Tests depend on the data.sql in test/resources
+ * Important the Tests depend on the fixtures in test/resources/db/testdata
  */
 @Import(TestcontainersConfiguration.class)
 @SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
+@AutoConfigureObservability(tracing = false)
 class PatientServiceApplicationTests {
 
     private static final String API_ROOT_URL = "/api/v1/patients";
     @Autowired
     TestRestTemplate restTemplate;
+    @Autowired
+    Flyway flyway;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+    @Autowired
+    PatientEmailFilter patientEmailFilter;
 
     @Test
     void shouldReturnAllPatientsWhenListIsRequested() {
@@ -47,6 +74,159 @@ class PatientServiceApplicationTests {
                 "isabella.walker@example.com");
     }
 
+    @Test
+    void shouldPageThroughAllPatientsWithACursor() {
+        var firstPage = restTemplate.getForEntity(API_ROOT_URL + "?size=3", String.class);
+        assertThat(firstPage.getStatusCode()).isEqualTo(HttpStatus.OK);
+        int firstCount = JsonPath.parse(firstPage.getBody()).read("$.length()");
+        assertThat(firstCount).isEqualTo(3);
+        var link = firstPage.getHeaders().getFirst(HttpHeaders.LINK);
+        assertThat(link).isNotNull().endsWith("; rel=\"next\"");
+
+        var next = URI.create(link.substring(link.indexOf('<') + 1, link.indexOf('>')));
+        var secondPage = restTemplate.getForEntity(next, String.class);
+        assertThat(secondPage.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(secondPage.getHeaders().containsKey(HttpHeaders.LINK)).isFalse();
+        JSONArray emails = JsonPath.parse(secondPage.getBody()).read("$..email");
+        assertThat(emails).hasSize(1);
+        JSONArray firstEmails = JsonPath.parse(firstPage.getBody()).read("$..email");
+        assertThat(firstEmails).doesNotContainAnyElementsOf(emails);
+    }
+
+    @Test
+    void shouldFilterPatientsByDateRangesAcrossPages() {
+        var firstPage = restTemplate.getForEntity(
+                API_ROOT_URL + "?size=1&registeredFrom=2024-01-01&registeredTo=2024-03-31&bornFrom=1980-01-01",
+                String.class);
+        assertThat(firstPage.getStatusCode()).isEqualTo(HttpStatus.OK);
+        var link = firstPage.getHeaders().getFirst(HttpHeaders.LINK);
+        assertThat(link).isNotNull().contains("registeredFrom=2024-01-01");
+
+        var next = URI.create(link.substring(link.indexOf('<') + 1, link.indexOf('>')));
+        var secondPage = restTemplate.getForEntity(next, String.class);
+        assertThat(secondPage.getHeaders().containsKey(HttpHeaders.LINK)).isFalse();
+        JSONArray firstEmails = JsonPath.parse(firstPage.getBody()).read("$..email");
+        JSONArray secondEmails = JsonPath.parse(secondPage.getBody()).read("$..email");
+        firstEmails.addAll(secondEmails);
+        assertThat(firstEmails).containsExactlyInAnyOrder(
+                "emily.davis@example.com",
+                "isabella.walker@example.com");
+
+        var bornBefore1980 = restTemplate.getForEntity(API_ROOT_URL + "?bornTo=1979-12-31", String.class);
+        JSONArray emails = JsonPath.parse(bornBefore1980.getBody()).read("$..email");
+        assertThat(emails).containsExactly("alice.johnson@example.com");
+    }
+
+    @Test
+    void shouldRejectAMalformedDateFilter() {
+        var response = restTemplate.getForEntity(API_ROOT_URL + "?bornFrom=12/03/1980", String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void shouldRejectAMalformedCursor() {
+        var response = restTemplate.getForEntity(API_ROOT_URL + "?cursor=not-a-cursor", String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void shouldSearchPatientsByPartialOrMisspeltNameAndAddress() {
+        var byAddress = restTemplate.getForEntity(API_ROOT_URL + "/search?q=shelby", String.class);
+        assertThat(byAddress.getStatusCode()).isEqualTo(HttpStatus.OK);
+        JSONArray emails = JsonPath.parse(byAddress.getBody()).read("$..email");
+        assertThat(emails).contains("emily.davis@example.com", "james.harris@example.com");
+
+        var byName = restTemplate.getForEntity(API_ROOT_URL + "/search?q=walkr&limit=1", String.class);
+        assertThat(byName.getStatusCode()).isEqualTo(HttpStatus.OK);
+        JSONArray names = JsonPath.parse(byName.getBody()).read("$..name");
+        assertThat(names).containsExactly("Isabella Walker");
+    }
+
+    @Test
+    void shouldRejectASearchTooShortToUseTheIndex() {
+        var response = restTemplate.getForEntity(API_ROOT_URL + "/search?q=ab", String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void shouldExportAllPatientsAsNdjson() {
+        var response = restTemplate.getForEntity(API_ROOT_URL + "/export", String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_NDJSON);
+        var lines = response.getBody().split("\n");
+        assertThat(lines).hasSize(4).allMatch(line -> line.startsWith("{") && line.endsWith("}"));
+        assertThat(lines)
+                .extracting(line -> (String) JsonPath.read(line, "$.email"))
+                .containsExactlyInAnyOrder(
+                        "alice.johnson@example.com",
+                        "emily.davis@example.com",
+                        "james.harris@example.com",
+                        "isabella.walker@example.com");
+    }
+
+    @Test
+    void shouldNegotiateCborForBinaryCallers() throws IOException {
+        var headers = new HttpHeaders();
+        headers.setAccept(List.of(MediaType.APPLICATION_CBOR));
+        var response = restTemplate.exchange(
+                API_ROOT_URL + "/223e4567-e89b-12d3-a456-426614174014",
+                HttpMethod.GET,
+                new HttpEntity<>(headers),
+                byte[].class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_CBOR);
+        var patient = new CBORMapper().readTree(response.getBody());
+        assertThat(patient.get("email").asText()).isEqualTo("isabella.walker@example.com");
+        assertThat(patient.get("dateOfBirth").asText()).isEqualTo("1987-10-17");
+    }
+
+    @Test
+    void shouldLookUpManyPatientsByIdAndEmailInOneRequest() {
+        var lookup = new PatientLookupRequestDTO(
+                List.of(UUID.fromString("123e4567-e89b-12d3-a456-426614174002"),
+                        UUID.fromString("223e4567-e89b-12d3-a456-426614174014"),
+                        UUID.fromString("00000000-0000-7000-8000-000000000000"),
+                        UUID.fromString("223e4567-e89b-12d3-a456-426614174009")),
+                List.of("isabella.walker@example.com", "nobody@example.com"));
+        var response = restTemplate.postForEntity(API_ROOT_URL + "/lookup", lookup, String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        var documentContext = JsonPath.parse(response.getBody());
+        JSONArray emails = documentContext.read("$.patients[*].email");
+        assertThat(emails).containsExactly(
+                "alice.johnson@example.com", "isabella.walker@example.com", "james.harris@example.com");
+        JSONArray missingIds = documentContext.read("$.missingIds");
+        assertThat(missingIds).containsExactly("00000000-0000-7000-8000-000000000000");
+        JSONArray missingEmails = documentContext.read("$.missingEmails");
+        assertThat(missingEmails).containsExactly("nobody@example.com");
+    }
+
+    @Test
+    void shouldRejectALookupOfMoreThanTheLimit() {
+        var ids = IntStream.range(0, PatientsConstants.MAX_LOOKUP_SIZE + 1)
+                .mapToObj(i -> UUID.randomUUID())
+                .toList();
+        var response = restTemplate.postForEntity(
+                API_ROOT_URL + "/lookup", new PatientLookupRequestDTO(ids, null), String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void shouldExposeLatencyHistogramsAndErrorCountsForPrometheus() {
+        restTemplate.getForEntity(API_ROOT_URL + "/223e4567-e89b-12d3-a456-426614174014", String.class);
+        restTemplate.getForEntity(API_ROOT_URL + "?cursor=not-a-cursor", String.class);
+
+        var response = restTemplate.getForEntity("/actuator/prometheus", String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody())
+                .contains("patients_service_seconds_bucket{")
+                .containsPattern("patients_service_seconds_count\\{.*operation=\"by-id\"")
+                .containsPattern("spring_data_repository_invocations_seconds_bucket\\{.*repository=\"PatientRepository\"")
+                .contains("hikaricp_connections_acquire_seconds_bucket{")
+                .containsPattern("patients_errors_total\\{.*exception=\"InvalidCursorException\"")
+                .contains("patients_email_filter_size_bytes")
+                .contains("patients_email_filter_false_positive_rate");
+    }
+
     @Test
     void shouldReturnAnExistingPatientByEmail() {
         String requestEmail = "isabella.walker@example.com";
@@ -70,6 +250,33 @@ class PatientServiceApplicationTests {
 
     }
 
+    @Test
+    @DirtiesContext
+    void shouldEvictACachedPatientOnANotificationFromAnotherReplica() throws InterruptedException {
+        var created = restTemplate.postForEntity(API_ROOT_URL, new PatientRequestDTO(
+                "Blue Sayama",
+                "blue.sayama@example.com",
+                "112 Fletcher St., Allsbury",
+                LocalDate.of(1996, 6, 18),
+                null), PatientResponseDTO.class).getBody();
+        var location = API_ROOT_URL + "/" + created.id();
+        assertThat(restTemplate.getForObject(location, PatientResponseDTO.class).address())
+                .isEqualTo("112 Fletcher St., Allsbury");
+
+        // another replica's write: this one's cache only learns of it through the channel
+        jdbcTemplate.update("UPDATE patient SET address = '7 Moved Rd., Allsbury' WHERE id = ?", created.id());
+        assertThat(restTemplate.getForObject(location, PatientResponseDTO.class).address())
+                .isEqualTo("112 Fletcher St., Allsbury");
+        jdbcTemplate.queryForList("SELECT pg_notify('patient_invalidation', ?)", created.id().toString());
+
+        var address = "";
+        for (int attempt = 0; attempt < 50 && !address.equals("7 Moved Rd., Allsbury"); attempt++) {
+            Thread.sleep(100);
+            address = restTemplate.getForObject(location, PatientResponseDTO.class).address();
+        }
+        assertThat(address).isEqualTo("7 Moved Rd., Allsbury");
+    }
+
     @Test
     void shouldNotReturnAnUnknownPatientByEmail() {
         String requestEmail = "secret.stalker@unknown.com";
@@ -105,6 +312,7 @@ class PatientServiceApplicationTests {
         String id = blueJson.read("$.id");
         assertThatCode(() -> UUID.fromString(id)).doesNotThrowAnyException();
         assertThat(id).isNotNull();
+        assertThat(UUID.fromString(id).version()).isEqualTo(7);
         String email = blueJson.read("$.email");
         assertThat(email).isEqualTo("blue.sayama@example.com");
         String dor = blueJson.read("$.dateOfRegistration");
@@ -143,6 +351,135 @@ class PatientServiceApplicationTests {
         assertThat(dor).isEqualTo(LocalDate.now().toString());
     }
 
+    @Test
+    @DirtiesContext
+    void shouldCreateABatchOfPatientsReportingEachItem() {
+        var batch = List.of(
+                new PatientRequestDTO(
+                        "Blue Sayama",
+                        "blue.sayama@example.com",
+                        "112 Fletcher St., Allsbury",
+                        LocalDate.of(1996, 6, 18),
+                        null),
+                new PatientRequestDTO(
+                        " ",
+                        "nobody@example.com",
+                        "1 Nowhere Rd",
+                        LocalDate.of(1990, 1, 1),
+                        null),
+                new PatientRequestDTO(
+                        "Alice Again",
+                        "alice.johnson@example.com",
+                        "789 Oak St, Capital City",
+                        LocalDate.of(1978, 3, 12),
+                        null),
+                new PatientRequestDTO(
+                        "Blue Twin",
+                        "blue.sayama@example.com",
+                        "113 Fletcher St., Allsbury",
+                        LocalDate.of(1996, 6, 18),
+                        null));
+        var response = restTemplate.postForEntity(API_ROOT_URL + "/batch", batch, String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        var documentContext = JsonPath.parse(response.getBody());
+        JSONArray statuses = documentContext.read("$[*].status");
+        assertThat(statuses).containsExactly("CREATED", "INVALID", "DUPLICATE_EMAIL", "DUPLICATE_EMAIL");
+        String id = documentContext.read("$[0].patient.id");
+
+        var getResponse = restTemplate.getForEntity(API_ROOT_URL + "/" + id, String.class);
+        assertThat(getResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
+        String email = JsonPath.parse(getResponse.getBody()).read("$.email");
+        assertThat(email).isEqualTo("blue.sayama@example.com");
+    }
+
+    @Test
+    @DirtiesContext
+    void shouldReportAnEmailTheFilterHasNotSeenAsADuplicateItem() throws InterruptedException {
+        for (int attempt = 0; attempt < 50 && patientEmailFilter.mightContain("never.stored@example.com"); attempt++) {
+            Thread.sleep(100); // until the filter is built and can rule emails out
+        }
+        // Written behind the service's back, as by a node whose change the filter has not caught up with yet
+        jdbcTemplate.update("""
+                INSERT INTO patient (id, name, email, address, date_of_birth, date_of_registration)
+                VALUES (?, 'Lagging Writer', 'filter.lag@example.com', '1 Elsewhere Rd', '1990-01-01', '2024-01-01')""",
+                UUID.randomUUID());
+
+        var response = restTemplate.postForEntity(API_ROOT_URL + "/batch", List.of(
+                new PatientRequestDTO(
+                        "Fresh Patient",
+                        "fresh.patient@example.com",
+                        "2 Fresh Rd",
+                        LocalDate.of(1992, 2, 2),
+                        null),
+                new PatientRequestDTO(
+                        "Late Duplicate",
+                        "filter.lag@example.com",
+                        "3 Late Rd",
+                        LocalDate.of(1993, 3, 3),
+                        null)), String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        JSONArray statuses = JsonPath.parse(response.getBody()).read("$[*].status");
+        assertThat(statuses).containsExactly("CREATED", "DUPLICATE_EMAIL");
+    }
+
+    @Test
+    @DirtiesContext
+    void shouldImportPatientsFromCsvInTheBackground() throws InterruptedException {
+        var csv = """
+                name,email,address,dateOfBirth,dateOfRegistration
+                Blue Sayama,blue.sayama@example.com,"112 Fletcher St., Allsbury",1996-06-18,
+                Bad Date,bad.date@example.com,1 Nowhere Rd,18/06/1996,
+                Alice Again,alice.johnson@example.com,789 Oak St,1978-03-12,2024-01-01
+                """;
+        var body = new LinkedMultiValueMap<String, Object>();
+        body.add("file", new ByteArrayResource(csv.getBytes(StandardCharsets.UTF_8)) {
+            @Override
+            public String getFilename() {
+                return "roster.csv";
+            }
+        });
+        var headers = new HttpHeaders();
+        headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+        var accepted = restTemplate.postForEntity(
+                API_ROOT_URL + "/imports", new HttpEntity<>(body, headers), String.class);
+        assertThat(accepted.getStatusCode()).isEqualTo(HttpStatus.ACCEPTED);
+        var statusLocation = accepted.getHeaders().getLocation();
+        assertThat(statusLocation).isNotNull();
+
+        String state = "QUEUED";
+        ResponseEntity<String> status = null;
+        for (int attempt = 0; attempt < 50 && !state.equals("COMPLETED"); attempt++) {
+            Thread.sleep(100);
+            status = restTemplate.getForEntity(statusLocation, String.class);
+            state = JsonPath.parse(status.getBody()).read("$.state");
+        }
+        assertThat(state).isEqualTo("COMPLETED");
+        var documentContext = JsonPath.parse(status.getBody());
+        assertThat(documentContext.read("$.rowsProcessed", Integer.class)).isEqualTo(3);
+        assertThat(documentContext.read("$.rowsCreated", Integer.class)).isEqualTo(1);
+        assertThat(documentContext.read("$.rowsRejected", Integer.class)).isEqualTo(2);
+
+        var getResponse = restTemplate.getForEntity(
+                API_ROOT_URL + "/by-email?email=blue.sayama@example.com", String.class);
+        assertThat(getResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+
+    @Test
+    void shouldRejectAnImportWithoutRequiredColumns() {
+        var body = new LinkedMultiValueMap<String, Object>();
+        body.add("file", new ByteArrayResource("name,email\n".getBytes(StandardCharsets.UTF_8)) {
+            @Override
+            public String getFilename() {
+                return "roster.csv";
+            }
+        });
+        var headers = new HttpHeaders();
+        headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+        var response = restTemplate.postForEntity(
+                API_ROOT_URL + "/imports", new HttpEntity<>(body, headers), String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
     @Test
     @SuppressWarnings("null") // already testing Not NULL response body
     void shouldUpdateAnExistingPatient() {
@@ -152,7 +489,7 @@ class PatientServiceApplicationTests {
                         PatientResponseDTO.class)
                 .getBody();
 
-        // Ensure that emily.davis@example.com exists in test/resources/data.sql
+        // Ensure that emily.davis@example.com exists in test/resources/db/testdata
         assertThat(emilyDavis).isNotNull();
         var updatePatientRequest = new PatientRequestDTO(
                 "Emily David",
@@ -184,6 +521,279 @@ class PatientServiceApplicationTests {
         assertThat(LocalDate.parse(dor)).isEqualTo(emilyDavis.dateOfRegistration());
     }
 
+    @Test
+    void shouldNotCreateAPatientWithAnEmailInUse() {
+        var newPatientRequest = new PatientRequestDTO(
+                "Alice Again",
+                "alice.johnson@example.com",
+                "789 Oak St, Capital City",
+                LocalDate.of(1978, 3, 12),
+                null);
+        var response = restTemplate.postForEntity(API_ROOT_URL, newPatientRequest, String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        String message = JsonPath.parse(response.getBody()).read("$.message");
+        assertThat(message).isEqualTo("Email alice.johnson@example.com is already in use");
+    }
+
+    @Test
+    void shouldNotUpdateAPatientToAnEmailInUse() {
+        var updatePatientRequest = new PatientRequestDTO(
+                "James Harris",
+                "alice.johnson@example.com",
+                "321 Cherry St, Shelbyville",
+                LocalDate.of(1993, 11, 15),
+                null);
+        var response = restTemplate.exchange(
+                API_ROOT_URL + "/223e4567-e89b-12d3-a456-426614174009",
+                HttpMethod.PUT,
+                new HttpEntity<>(updatePatientRequest),
+                String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        var getResponse = restTemplate.getForEntity(
+                API_ROOT_URL + "/223e4567-e89b-12d3-a456-426614174009", String.class);
+        String email = JsonPath.parse(getResponse.getBody()).read("$.email");
+        assertThat(email).isEqualTo("james.harris@example.com");
+    }
+
+    @Test
+    void shouldNotUpdateAnUnknownPatient() {
+        var updatePatientRequest = new PatientRequestDTO(
+                "Nobody",
+                "nobody@example.com",
+                "1 Nowhere Rd",
+                LocalDate.of(1990, 1, 1),
+                null);
+        var response = restTemplate.exchange(
+                API_ROOT_URL + "/" + UUID.randomUUID(),
+                HttpMethod.PUT,
+                new HttpEntity<>(updatePatientRequest),
+                String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    void shouldAnswerAConditionalGetForAnUnchangedPatientWithNotModified() {
+        var url = API_ROOT_URL + "/223e4567-e89b-12d3-a456-426614174009";
+        var response = restTemplate.getForEntity(url, String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        var eTag = response.getHeaders().getETag();
+        assertThat(eTag).isNotNull().startsWith("\"");
+        assertThat(response.getHeaders().getLastModified()).isPositive();
+
+        var headers = new HttpHeaders();
+        headers.setIfNoneMatch(eTag);
+        var conditional = restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), String.class);
+        assertThat(conditional.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(conditional.getBody()).isNull();
+    }
+
+    @Test
+    @DirtiesContext
+    void shouldRejectAnUpdateMadeAgainstAStaleETag() {
+        var url = API_ROOT_URL + "/223e4567-e89b-12d3-a456-426614174014";
+        var original = restTemplate.getForEntity(url, String.class).getHeaders().getETag();
+        assertThat(original).isNotNull();
+
+        var headers = new HttpHeaders();
+        headers.setIfMatch(original);
+        var first = restTemplate.exchange(url, HttpMethod.PUT, new HttpEntity<>(new PatientRequestDTO(
+                "Isabella Walker",
+                "isabella.walker@example.com",
+                "1 First Writer Rd, Springfield",
+                LocalDate.of(1987, 10, 17),
+                null), headers), String.class);
+        assertThat(first.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(first.getHeaders().getETag()).isNotNull().isNotEqualTo(original);
+
+        var second = restTemplate.exchange(url, HttpMethod.PUT, new HttpEntity<>(new PatientRequestDTO(
+                "Isabella Walker",
+                "isabella.walker@example.com",
+                "2 Second Writer Rd, Springfield",
+                LocalDate.of(1987, 10, 17),
+                null), headers), String.class);
+        assertThat(second.getStatusCode()).isEqualTo(HttpStatus.PRECONDITION_FAILED);
+
+        String address = JsonPath.parse(restTemplate.getForEntity(url, String.class).getBody()).read("$.address");
+        assertThat(address).isEqualTo("1 First Writer Rd, Springfield");
+    }
+
+    @Test
+    void shouldNotMatchTheETagOfAnotherPatientAtTheSameVersion() {
+        for (var name : List.of("Noah Tagged", "Liam Tagged")) {
+            assertThat(restTemplate.postForEntity(API_ROOT_URL, new PatientRequestDTO(
+                    name,
+                    name.toLowerCase().replace(' ', '.') + "@example.com",
+                    "1 Tag Rd, Springfield",
+                    LocalDate.of(1990, 3, 4),
+                    null), String.class).getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        }
+        var byEmail = API_ROOT_URL + "/by-email?email=";
+        var first = restTemplate.getForEntity(byEmail + "noah.tagged@example.com", String.class);
+        var second = restTemplate.getForEntity(byEmail + "liam.tagged@example.com", String.class);
+        assertThat(first.getHeaders().getETag()).isNotNull().isNotEqualTo(second.getHeaders().getETag());
+
+        var headers = new HttpHeaders();
+        headers.setIfMatch(first.getHeaders().getETag());
+        var update = restTemplate.exchange(
+                API_ROOT_URL + "/" + JsonPath.parse(second.getBody()).read("$.id"),
+                HttpMethod.PUT,
+                new HttpEntity<>(new PatientRequestDTO(
+                        "Liam Tagged",
+                        "liam.tagged@example.com",
+                        "2 Wrong Tag Rd, Springfield",
+                        LocalDate.of(1990, 3, 4),
+                        null), headers),
+                String.class);
+        assertThat(update.getStatusCode()).isEqualTo(HttpStatus.PRECONDITION_FAILED);
+    }
+
+    @Test
+    @SuppressWarnings("null")
+    void shouldPatchOnlyTheMembersOfAMergePatch() {
+        var created = restTemplate.postForEntity(API_ROOT_URL, new PatientRequestDTO(
+                "Mia Patched",
+                "mia.patched@example.com",
+                "1 Before Rd, Springfield",
+                LocalDate.of(1991, 6, 2),
+                null), PatientResponseDTO.class);
+        assertThat(created.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        var url = API_ROOT_URL + "/" + created.getBody().id();
+
+        var response = restTemplate.exchange(url, HttpMethod.PATCH,
+                mergePatch("{\"address\": \"2 After Rd, Springfield\"}", null), PatientResponseDTO.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getETag()).isNotNull().isNotEqualTo(created.getHeaders().getETag());
+        assertThat(response.getBody().address()).isEqualTo("2 After Rd, Springfield");
+        assertThat(response.getBody().email()).isEqualTo("mia.patched@example.com");
+        assertThat(response.getBody().name()).isEqualTo("Mia Patched");
+
+        var emailPatch = restTemplate.exchange(url, HttpMethod.PATCH,
+                mergePatch("{\"email\": \"mia.repatched@example.com\"}", response.getHeaders().getETag()),
+                PatientResponseDTO.class);
+        assertThat(emailPatch.getStatusCode()).isEqualTo(HttpStatus.OK);
+        var getResponse = restTemplate.getForEntity(url, PatientResponseDTO.class);
+        assertThat(getResponse.getBody().email()).isEqualTo("mia.repatched@example.com");
+        assertThat(getResponse.getBody().address()).isEqualTo("2 After Rd, Springfield");
+
+        var stale = restTemplate.exchange(url, HttpMethod.PATCH,
+                mergePatch("{\"address\": \"3 Stale Rd\"}", response.getHeaders().getETag()), String.class);
+        assertThat(stale.getStatusCode()).isEqualTo(HttpStatus.PRECONDITION_FAILED);
+        restTemplate.delete(url);
+    }
+
+    @Test
+    void shouldRejectAMergePatchThatRemovesOrChangesAFixedMember() {
+        var url = API_ROOT_URL + "/123e4567-e89b-12d3-a456-426614174002";
+        for (var body : List.of("{\"email\": null}", "{\"address\": \"  \"}", "{\"email\": \"not-an-email\"}",
+                "{\"name\": \"Alice Renamed\"}", "[]")) {
+            var response = restTemplate.exchange(url, HttpMethod.PATCH, mergePatch(body, null), String.class);
+            assertThat(response.getStatusCode()).as(body).isEqualTo(HttpStatus.BAD_REQUEST);
+        }
+        var inUse = restTemplate.exchange(url, HttpMethod.PATCH,
+                mergePatch("{\"email\": \"james.harris@example.com\"}", null), String.class);
+        assertThat(inUse.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        String message = JsonPath.parse(inUse.getBody()).read("$.message");
+        assertThat(message).isEqualTo("Email james.harris@example.com is already in use");
+
+        var unknown = restTemplate.exchange(API_ROOT_URL + "/" + UUID.randomUUID(), HttpMethod.PATCH,
+                mergePatch("{\"address\": \"1 Nowhere Rd\"}", null), String.class);
+        assertThat(unknown.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    @DirtiesContext
+    @SuppressWarnings("null")
+    void shouldRecordCreatesUpdatesAndDeletesInTheChangeLog() {
+        var created = restTemplate.postForEntity(API_ROOT_URL, new PatientRequestDTO(
+                "Blue Sayama",
+                "blue.sayama@example.com",
+                "112 Fletcher St., Allsbury",
+                LocalDate.of(1996, 6, 18),
+                null), PatientResponseDTO.class).getBody();
+        restTemplate.put(API_ROOT_URL + "/" + created.id(), new PatientRequestDTO(
+                "Blue Sayama",
+                "blue.sayama@example.com",
+                "113 Fletcher St., Allsbury",
+                LocalDate.of(1996, 6, 18),
+                null));
+        restTemplate.delete(API_ROOT_URL + "/" + created.id());
+        restTemplate.delete(API_ROOT_URL + "/" + UUID.randomUUID()); // nothing deleted, no tombstone
+
+        var firstPage = restTemplate.getForEntity(API_ROOT_URL + "/changes?since=0&size=1", String.class);
+        assertThat(firstPage.getStatusCode()).isEqualTo(HttpStatus.OK);
+        var first = JsonPath.parse(firstPage.getBody());
+        assertThat((Boolean) first.read("$.hasMore")).isTrue();
+        assertThat((String) first.read("$.changes[0].operation")).isEqualTo("CREATED");
+
+        var rest = JsonPath.parse(restTemplate.getForEntity(
+                API_ROOT_URL + "/changes?since=" + first.read("$.next"), String.class).getBody());
+        assertThat((Boolean) rest.read("$.hasMore")).isFalse();
+        JSONArray operations = rest.read("$.changes[*].operation");
+        assertThat(operations).containsExactly("UPDATED", "DELETED");
+        JSONArray patientIds = rest.read("$.changes[*].patientId");
+        assertThat(patientIds).containsOnly(created.id().toString());
+        assertThat((Object) rest.read("$.changes[1].patient")).isNull();
+    }
+
+    @Test
+    @DirtiesContext
+    void shouldHoldBackChangesUntilEveryOlderTransactionHasEnded() throws SQLException {
+        var since = JsonPath.parse(restTemplate.getForEntity(API_ROOT_URL + "/changes?since=0&size=1000", String.class)
+                .getBody()).read("$.next", Long.class);
+        try (var olderWriter = jdbcTemplate.getDataSource().getConnection()) {
+            olderWriter.setAutoCommit(false);
+            try (var statement = olderWriter.prepareStatement(
+                    "INSERT INTO patient_change (patient_id, operation) VALUES (?, 'UPDATED')")) {
+                statement.setObject(1, UUID.fromString("223e4567-e89b-12d3-a456-426614174014"));
+                statement.executeUpdate();
+            }
+            restTemplate.postForEntity(API_ROOT_URL, new PatientRequestDTO(
+                    "Blue Sayama",
+                    "blue.sayama@example.com",
+                    "112 Fletcher St., Allsbury",
+                    LocalDate.of(1996, 6, 18),
+                    null), String.class);
+
+            // a position for the new patient now could end up ahead of the older writer's change
+            var held = JsonPath.parse(restTemplate.getForEntity(
+                    API_ROOT_URL + "/changes?since=" + since, String.class).getBody());
+            assertThat((JSONArray) held.read("$.changes")).isEmpty();
+            olderWriter.commit();
+        }
+
+        var changes = JsonPath.parse(restTemplate.getForEntity(
+                API_ROOT_URL + "/changes?since=" + since, String.class).getBody());
+        JSONArray operations = changes.read("$.changes[*].operation");
+        assertThat(operations).containsExactly("UPDATED", "CREATED");
+    }
+
+    @Test
+    @DirtiesContext
+    void shouldPushChangesToServerSentEventSubscribers() throws Exception {
+        var client = HttpClient.newHttpClient();
+        var request = HttpRequest
+                .newBuilder(URI.create(restTemplate.getRootUri() + API_ROOT_URL + "/changes/stream"))
+                .header(HttpHeaders.ACCEPT, MediaType.TEXT_EVENT_STREAM_VALUE)
+                .build();
+        var stream = client.sendAsync(request, HttpResponse.BodyHandlers.ofLines()).get(10, TimeUnit.SECONDS);
+        assertThat(stream.statusCode()).isEqualTo(HttpStatus.OK.value());
+
+        restTemplate.postForEntity(API_ROOT_URL, new PatientRequestDTO(
+                "Blue Sayama",
+                "blue.sayama@example.com",
+                "112 Fletcher St., Allsbury",
+                LocalDate.of(1996, 6, 18),
+                null), String.class);
+
+        var data = CompletableFuture
+                .supplyAsync(() -> stream.body().filter(line -> line.startsWith("data:")).findFirst().orElseThrow())
+                .get(10, TimeUnit.SECONDS);
+        var change = JsonPath.parse(data.substring("data:".length()));
+        assertThat((String) change.read("$.operation")).isEqualTo("CREATED");
+        assertThat((String) change.read("$.patient.email")).isEqualTo("blue.sayama@example.com");
+        stream.body().close();
+    }
+
     @Test
     @DirtiesContext
     @SuppressWarnings("null")
@@ -194,7 +804,7 @@ class PatientServiceApplicationTests {
                         PatientResponseDTO.class)
                 .getBody();
 
-        // Ensure that emily.davis@example.com exists in test/resources/data.sql
+        // Ensure that emily.davis@example.com exists in test/resources/db/testdata
         assertThat(emilyDavis).isNotNull();
 
         var response = restTemplate
@@ -211,4 +821,54 @@ class PatientServiceApplicationTests {
         assertThat(getResponse.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
     }
 
+    @Test
+    void shouldNotDeleteAnUnknownPatient() {
+        var response = restTemplate.exchange(
+                API_ROOT_URL + "/" + UUID.randomUUID(), HttpMethod.DELETE, null, String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    @SuppressWarnings("null")
+    void shouldDeleteAllPatientsRegisteredBeforeADate() {
+        var ids = IntStream.range(0, 3)
+                .mapToObj(i -> restTemplate.postForEntity(API_ROOT_URL, new PatientRequestDTO(
+                        "Retired Patient " + i,
+                        "retired." + i + "@example.com",
+                        i + " Archive Rd, Springfield",
+                        LocalDate.of(1950, 1, 1),
+                        LocalDate.of(2001, 1, 1 + i)), PatientResponseDTO.class).getBody().id())
+                .toList();
+
+        var response = restTemplate.exchange(
+                API_ROOT_URL + "?registeredBefore=2001-01-03", HttpMethod.DELETE, null, String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat((Integer) JsonPath.read(response.getBody(), "$.deleted")).isEqualTo(2);
+        assertThat(restTemplate.getForEntity(API_ROOT_URL + "/" + ids.get(0), String.class).getStatusCode())
+                .isEqualTo(HttpStatus.NOT_FOUND);
+        assertThat(restTemplate.getForEntity(API_ROOT_URL + "/" + ids.get(2), String.class).getStatusCode())
+                .isEqualTo(HttpStatus.OK);
+        // the test data is registered from 2022 on and stays
+        assertThat(restTemplate.getForEntity(API_ROOT_URL + "/123e4567-e89b-12d3-a456-426614174002", String.class)
+                .getStatusCode()).isEqualTo(HttpStatus.OK);
+
+        restTemplate.delete(API_ROOT_URL + "/" + ids.get(2));
+    }
+
+    @Test
+    void shouldNotReapplyMigrationsWhenSchemaIsCurrent() {
+        var result = flyway.migrate();
+        assertThat(result.migrationsExecuted).isZero();
+        assertThat(flyway.info().pending()).isEmpty();
+        assertThat(flyway.info().current().getVersion().getVersion()).isEqualTo("9");
+    }
+
+    private static HttpEntity<String> mergePatch(String body, String ifMatch) {
+        var headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType(PatientsConstants.MERGE_PATCH_JSON));
+        if (ifMatch != null) {
+            headers.setIfMatch(ifMatch);
+        }
+        return new HttpEntity<>(body, headers);
+    }
 }
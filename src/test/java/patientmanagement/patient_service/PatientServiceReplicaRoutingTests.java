@@ -0,0 +1,119 @@
+package patientmanagement.patient_service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Map;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+/**
+ * A second database stands in for the replica. It gets the same migrations and
+ * fixtures as the primary plus one patient only it has, so a response tells which
+ * of the two served it. Single patient reads go through the cache, which only
+ * loads from the primary, so routing is observed through search.
+ */
+@Testcontainers
+@Import(TestcontainersConfiguration.class)
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT, properties = "patients.datasource.replica.sticky-for=1m")
+class PatientServiceReplicaRoutingTests {
+    private static final String API_ROOT_URL = "/api/v1/patients";
+    private static final String REPLICA_ONLY_ID = "323e4567-e89b-12d3-a456-426614174099";
+
+    @Container
+    static final PostgreSQLContainer<?> replica = new PostgreSQLContainer<>(DockerImageName.parse("postgres:latest"));
+
+    @DynamicPropertySource
+    static void replicaProperties(DynamicPropertyRegistry registry) throws SQLException {
+        Flyway.configure()
+                .dataSource(replica.getJdbcUrl(), replica.getUsername(), replica.getPassword())
+                .locations("classpath:db/migration", "classpath:db/testdata")
+                .mixed(true) // as the application's, for the concurrent index builds
+                .configuration(Map.of("flyway.postgresql.transactional.lock", "false"))
+                .load()
+                .migrate();
+        try (var connection = DriverManager.getConnection(
+                replica.getJdbcUrl(), replica.getUsername(), replica.getPassword())) {
+            connection.createStatement().execute("""
+                    INSERT INTO patient (id, name, email, address, date_of_birth, date_of_registration)
+                    VALUES ('%s', 'Replica Only', 'replica.only@example.com', '1 Standby Rd', '1990-01-01', '2024-01-01')
+                    ON CONFLICT DO NOTHING""".formatted(REPLICA_ONLY_ID));
+        }
+        registry.add("patients.datasource.replica.url", replica::getJdbcUrl);
+        registry.add("patients.datasource.replica.username", replica::getUsername);
+        registry.add("patients.datasource.replica.password", replica::getPassword);
+    }
+
+    @Autowired
+    TestRestTemplate restTemplate;
+
+    private ResponseEntity<String> get(String url, String client) {
+        var headers = new HttpHeaders();
+        headers.set("X-Client-Id", client);
+        return restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), String.class);
+    }
+
+    private ResponseEntity<PatientResponseDTO> write(HttpMethod method, String url, String client, String address) {
+        var headers = new HttpHeaders();
+        headers.set("X-Client-Id", client);
+        return restTemplate.exchange(url, method, new HttpEntity<>(new PatientRequestDTO(
+                "Blue Sayama",
+                "blue.sayama@example.com",
+                address,
+                LocalDate.of(1996, 6, 18),
+                LocalDate.of(2024, 7, 22)), headers), PatientResponseDTO.class);
+    }
+
+    @Test
+    void shouldServeReadsFromTheReplica() {
+        var response = get(API_ROOT_URL + "/search?q=Replica", "reader");
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).contains("Replica Only");
+    }
+
+    @Test
+    void shouldWriteToThePrimaryAndKeepTheWritersReadsThere() throws SQLException {
+        var created = write(HttpMethod.POST, API_ROOT_URL, "writer", "1 Old Rd");
+        assertThat(created.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        var url = API_ROOT_URL + "/" + created.getBody().id();
+
+        // Not replicated anywhere: a reader without a recent write only sees the replica
+        assertThat(get(API_ROOT_URL + "/search?q=Sayama", "reader").getBody()).doesNotContain("Blue Sayama");
+        assertThat(get(API_ROOT_URL + "/search?q=Sayama", "writer").getBody()).contains("Blue Sayama");
+
+        // Once the replica has the insert but not the update, no reader may cache its stale row
+        try (var connection = DriverManager.getConnection(
+                replica.getJdbcUrl(), replica.getUsername(), replica.getPassword());
+                var statement = connection.prepareStatement("""
+                        INSERT INTO patient (id, name, email, address, date_of_birth, date_of_registration)
+                        VALUES (?, 'Blue Sayama', 'blue.sayama@example.com', '1 Old Rd', '1996-06-18', '2024-07-22')""")) {
+            statement.setObject(1, created.getBody().id());
+            statement.executeUpdate();
+        }
+        assertThat(write(HttpMethod.PUT, url, "writer", "2 New Rd").getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(get(url, "reader").getBody()).contains("2 New Rd");
+        assertThat(get(url, "writer").getBody()).contains("2 New Rd");
+        var byEmail = API_ROOT_URL + "/by-email?email=blue.sayama@example.com";
+        assertThat(get(byEmail, "reader").getBody()).contains("2 New Rd");
+        assertThat(get(byEmail, "writer").getBody()).contains("2 New Rd");
+    }
+}
@@ -0,0 +1,405 @@
+package patientmanagement.patient_service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.util.LinkedMultiValueMap;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import com.jayway.jsonpath.JsonPath;
+
+/**
+ * The primary plus two more databases as shards. Shards must start empty, so
+ * the primary gets no fixtures and the tests work with patients they create
+ * themselves.
+ */
+@Testcontainers
+@Import(TestcontainersConfiguration.class)
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT, properties = {
+        "patients.admission.enabled=false",
+        "spring.flyway.locations=classpath:db/migration" })
+class PatientServiceShardingTests {
+    private static final String API_ROOT_URL = "/api/v1/patients";
+
+    @Container
+    static final PostgreSQLContainer<?> shard1 = new PostgreSQLContainer<>(DockerImageName.parse("postgres:latest"));
+
+    @Container
+    static final PostgreSQLContainer<?> shard2 = new PostgreSQLContainer<>(DockerImageName.parse("postgres:latest"));
+
+    @DynamicPropertySource
+    static void shardProperties(DynamicPropertyRegistry registry) {
+        registry.add("patients.datasource.shards.urls", () -> shard1.getJdbcUrl() + "," + shard2.getJdbcUrl());
+        registry.add("patients.datasource.shards.username", shard1::getUsername);
+        registry.add("patients.datasource.shards.password", shard1::getPassword);
+    }
+
+    @Autowired
+    TestRestTemplate restTemplate;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+    @Autowired
+    PatientShards patientShards;
+
+    private static PatientRequestDTO request(String name, String email, String address, LocalDate registered) {
+        return new PatientRequestDTO(name, email, address, LocalDate.of(1996, 6, 18), registered);
+    }
+
+    private ResponseEntity<PatientResponseDTO> create(String name, String email) {
+        return restTemplate.postForEntity(API_ROOT_URL,
+                request(name, email, "112 Fletcher St., Allsbury", LocalDate.of(2024, 7, 22)),
+                PatientResponseDTO.class);
+    }
+
+    private ResponseEntity<String> update(UUID patientId, String email) {
+        return restTemplate.exchange(API_ROOT_URL + "/" + patientId, HttpMethod.PUT, new HttpEntity<>(
+                new PatientRequestDTO(
+                        "Any Name",
+                        email,
+                        "7 Moved Rd., Allsbury",
+                        LocalDate.of(1996, 6, 18),
+                        null)), String.class);
+    }
+
+    private boolean storedOn(int shard, UUID patientId) throws SQLException {
+        var sql = "SELECT count(*) FROM patient WHERE id = ?";
+        if (shard == 0) {
+            return jdbcTemplate.queryForObject(sql, Integer.class, patientId) == 1;
+        }
+        var container = shard == 1 ? shard1 : shard2;
+        try (var connection = DriverManager.getConnection(
+                container.getJdbcUrl(), container.getUsername(), container.getPassword());
+                var statement = connection.prepareStatement(sql)) {
+            statement.setObject(1, patientId);
+            var result = statement.executeQuery();
+            result.next();
+            return result.getInt(1) == 1;
+        }
+    }
+
+    private static void executeOn(PostgreSQLContainer<?> shard, String... sql) throws SQLException {
+        try (var connection = DriverManager.getConnection(
+                shard.getJdbcUrl(), shard.getUsername(), shard.getPassword());
+                var statement = connection.createStatement()) {
+            for (var each : sql) {
+                statement.execute(each);
+            }
+        }
+    }
+
+    @Test
+    void shouldStoreEachPatientOnTheShardOfItsIdOnly() throws SQLException {
+        var usedShards = new HashSet<Integer>();
+        for (int i = 0; i < 30; i++) {
+            var email = "placed." + i + "@shards.example.com";
+            var created = create("Placed " + i, email);
+            assertThat(created.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+            var patientId = created.getBody().id();
+            var shard = patientShards.shardOf(patientId);
+            usedShards.add(shard);
+            for (int other = 0; other < patientShards.count(); other++) {
+                assertThat(storedOn(other, patientId)).as("on shard %d", other).isEqualTo(other == shard);
+            }
+
+            var byId = restTemplate.getForEntity(API_ROOT_URL + "/" + patientId, PatientResponseDTO.class);
+            assertThat(byId.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(byId.getBody().email()).isEqualTo(email);
+            var byEmail = restTemplate.getForEntity(API_ROOT_URL + "/by-email?email=" + email, PatientResponseDTO.class);
+            assertThat(byEmail.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(byEmail.getBody().id()).isEqualTo(patientId);
+        }
+        assertThat(usedShards).containsExactlyInAnyOrder(0, 1, 2);
+    }
+
+    @Test
+    void shouldKeepEmailsUniqueAcrossShards() {
+        var first = create("First Holder", "unique@shards.example.com").getBody().id();
+        var second = IntStream.range(0, 50)
+                .mapToObj(i -> create("Second Holder", "second." + i + "@shards.example.com").getBody().id())
+                .filter(id -> patientShards.shardOf(id) != patientShards.shardOf(first))
+                .findFirst()
+                .orElseThrow();
+
+        assertThat(create("Third Holder", "unique@shards.example.com").getStatusCode())
+                .isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(update(second, "unique@shards.example.com").getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+
+        // Released by the first holder, so free for a patient on another shard
+        assertThat(update(first, "moved@shards.example.com").getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(update(second, "unique@shards.example.com").getStatusCode()).isEqualTo(HttpStatus.OK);
+        var byEmail = restTemplate.getForEntity(
+                API_ROOT_URL + "/by-email?email=unique@shards.example.com", PatientResponseDTO.class);
+        assertThat(byEmail.getBody().id()).isEqualTo(second);
+        assertThat(update(first, "unique@shards.example.com").getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void shouldFreeTheEmailOfADeletedPatient() {
+        var patientId = create("Short Stay", "short.stay@shards.example.com").getBody().id();
+        restTemplate.delete(API_ROOT_URL + "/" + patientId);
+
+        assertThat(restTemplate.getForEntity(API_ROOT_URL + "/" + patientId, String.class).getStatusCode())
+                .isEqualTo(HttpStatus.NOT_FOUND);
+        assertThat(create("Next Stay", "short.stay@shards.example.com").getStatusCode())
+                .isEqualTo(HttpStatus.CREATED);
+    }
+
+    @Test
+    void shouldPageAndExportAcrossShardsInIdOrder() {
+        var created = IntStream.range(0, 10)
+                .mapToObj(i -> create("Listed " + i, "listed." + i + "@shards.example.com").getBody().id())
+                .toList();
+
+        var listed = new ArrayList<UUID>();
+        URI next = URI.create(API_ROOT_URL + "?size=4");
+        while (next != null) {
+            var page = restTemplate.getForEntity(next, String.class);
+            assertThat(page.getStatusCode()).isEqualTo(HttpStatus.OK);
+            List<String> ids = JsonPath.parse(page.getBody()).read("$[*].id");
+            ids.stream().map(UUID::fromString).forEach(listed::add);
+            var link = page.getHeaders().getFirst(HttpHeaders.LINK);
+            next = link == null ? null : URI.create(link.substring(link.indexOf('<') + 1, link.indexOf('>')));
+        }
+        assertThat(listed).doesNotHaveDuplicates().containsAll(created);
+        assertThat(listed).isSortedAccordingTo((a, b) -> a.toString().compareTo(b.toString()));
+
+        var export = restTemplate.getForEntity(API_ROOT_URL + "/export", String.class);
+        assertThat(export.getStatusCode()).isEqualTo(HttpStatus.OK);
+        var exported = export.getBody().lines()
+                .map(line -> UUID.fromString(JsonPath.parse(line).read("$.id")))
+                .toList();
+        assertThat(exported).doesNotHaveDuplicates().containsAll(created);
+    }
+
+    @Test
+    void shouldRefuseToStartWithPatientsTheLayoutWouldStrand() throws SQLException {
+        // As if shard 2 had been a populated database before joining
+        executeOn(shard2, "DELETE FROM patient_shard", """
+                INSERT INTO patient (id, name, email, address, date_of_birth, date_of_registration)
+                VALUES ('423e4567-e89b-12d3-a456-426614174000', 'Stranded', 'stranded@shards.example.com',
+                        '1 Lost Rd', '1990-01-01', '2024-01-01')""");
+        try {
+            assertThatIllegalStateException().isThrownBy(patientShards::checkLayout)
+                    .withMessageContaining("Shard 2 holds patients");
+        } finally {
+            executeOn(shard2, "DELETE FROM patient WHERE email = 'stranded@shards.example.com'");
+        }
+        patientShards.checkLayout(); // empty again, so it joins
+
+        // As if it had been shard 1 of a two shard layout
+        executeOn(shard2, "UPDATE patient_shard SET shard = 1, shard_count = 2");
+        try {
+            assertThatIllegalStateException().isThrownBy(patientShards::checkLayout)
+                    .withMessageContaining("was shard 1 of 2");
+        } finally {
+            executeOn(shard2, "UPDATE patient_shard SET shard = 2, shard_count = 3");
+        }
+    }
+
+    @Test
+    void shouldRankSearchHitsFromEveryShardAsOneSearch() {
+        var shards = new HashSet<Integer>();
+        for (int i = 0; i < 6; i++) {
+            shards.add(patientShards.shardOf(create("Ranked Alpha " + i, "ranked." + i + "@shards.example.com")
+                    .getBody().id()));
+            restTemplate.postForEntity(API_ROOT_URL, request("Other Holder " + i, "other." + i + "@shards.example.com",
+                    i + " Ranked Rd", LocalDate.of(2024, 7, 22)), String.class);
+        }
+        assertThat(shards).hasSizeGreaterThan(1);
+
+        var all = restTemplate.getForEntity(API_ROOT_URL + "/search?q=Ranked&limit=20", String.class);
+        assertThat(all.getStatusCode()).isEqualTo(HttpStatus.OK);
+        List<String> names = JsonPath.parse(all.getBody()).read("$[*].name");
+        assertThat(names).hasSize(12);
+        assertThat(names.subList(0, 6)).allMatch(name -> name.startsWith("Ranked Alpha"));
+
+        var best = restTemplate.getForEntity(API_ROOT_URL + "/search?q=Ranked&limit=3", String.class);
+        List<String> bestNames = JsonPath.parse(best.getBody()).read("$[*].name");
+        assertThat(bestNames).containsExactly("Ranked Alpha 0", "Ranked Alpha 1", "Ranked Alpha 2");
+    }
+
+    @Test
+    void shouldCreateABatchAcrossShardsReportingEachItem() throws SQLException {
+        create("Batch Holder", "batch.held@shards.example.com");
+        var items = new ArrayList<PatientRequestDTO>();
+        for (int i = 0; i < 6; i++) {
+            items.add(request("Batch " + i, "batch." + i + "@shards.example.com", "1 Batch Rd", null));
+        }
+        items.add(request("Batch Twin", "batch.0@shards.example.com", "2 Batch Rd", null));
+        items.add(request("Batch Held", "batch.held@shards.example.com", "3 Batch Rd", null));
+        items.add(request(" ", "batch.invalid@shards.example.com", "4 Batch Rd", null));
+
+        var response = restTemplate.postForEntity(API_ROOT_URL + "/batch", items, String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        var results = JsonPath.parse(response.getBody());
+        List<String> statuses = results.read("$[*].status");
+        assertThat(statuses).containsExactly("CREATED", "CREATED", "CREATED", "CREATED", "CREATED", "CREATED",
+                "DUPLICATE_EMAIL", "DUPLICATE_EMAIL", "INVALID");
+        List<String> ids = results.read("$[0:6].patient.id");
+        var usedShards = new HashSet<Integer>();
+        for (int i = 0; i < ids.size(); i++) {
+            var patientId = UUID.fromString(ids.get(i));
+            usedShards.add(patientShards.shardOf(patientId));
+            assertThat(storedOn(patientShards.shardOf(patientId), patientId)).isTrue();
+            var byEmail = restTemplate.getForEntity(
+                    API_ROOT_URL + "/by-email?email=batch." + i + "@shards.example.com", PatientResponseDTO.class);
+            assertThat(byEmail.getBody().id()).isEqualTo(patientId);
+        }
+        assertThat(usedShards).hasSizeGreaterThan(1);
+    }
+
+    @Test
+    void shouldKeepTheOtherShardsOfABatchWhenOneShardFails() throws SQLException {
+        var items = new ArrayList<PatientRequestDTO>();
+        for (int i = 0; i < 24; i++) {
+            items.add(request("Partial " + i, "partial." + i + "@shards.example.com", "9 Broken Rd", null));
+        }
+        executeOn(shard1, "ALTER TABLE patient ADD CONSTRAINT broken_shard CHECK (address <> '9 Broken Rd')");
+        ResponseEntity<String> response;
+        try {
+            response = restTemplate.postForEntity(API_ROOT_URL + "/batch", items, String.class);
+        } finally {
+            executeOn(shard1, "ALTER TABLE patient DROP CONSTRAINT broken_shard");
+        }
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        var results = JsonPath.parse(response.getBody());
+        var failed = new ArrayList<Integer>();
+        var createdOn = new HashSet<Integer>();
+        for (int i = 0; i < items.size(); i++) {
+            String status = results.read("$[" + i + "].status");
+            if (status.equals("FAILED")) {
+                failed.add(i);
+                continue;
+            }
+            assertThat(status).isEqualTo("CREATED");
+            var patientId = UUID.fromString(results.read("$[" + i + "].patient.id"));
+            createdOn.add(patientShards.shardOf(patientId));
+            assertThat(storedOn(patientShards.shardOf(patientId), patientId)).isTrue();
+        }
+        assertThat(failed).isNotEmpty();
+        assertThat(createdOn).containsExactlyInAnyOrder(0, 2); // shard 2 is written after the failed shard 1
+        for (var i : failed) { // the failed items' claims were all released
+            assertThat(create("Partial Again " + i, "partial." + i + "@shards.example.com").getStatusCode())
+                    .isEqualTo(HttpStatus.CREATED);
+        }
+    }
+
+    @Test
+    void shouldTakeOverAnEmailClaimNoPatientUses() {
+        jdbcTemplate.update("""
+                INSERT INTO patient_email (email, patient_id, claimed_at)
+                VALUES ('abandoned@shards.example.com', ?, now() - interval '1 hour'),
+                       ('abandoned.batch@shards.example.com', ?, now() - interval '1 hour'),
+                       ('in.flight@shards.example.com', ?, now())""",
+                UuidV7Generator.next(), UuidV7Generator.next(), UuidV7Generator.next());
+
+        assertThat(create("Abandoned", "abandoned@shards.example.com").getStatusCode())
+                .isEqualTo(HttpStatus.CREATED);
+        var batch = restTemplate.postForEntity(API_ROOT_URL + "/batch", List.of(
+                request("Abandoned Batch", "abandoned.batch@shards.example.com", "1 Batch Rd", null)), String.class);
+        assertThat(JsonPath.parse(batch.getBody()).read("$[0].status", String.class)).isEqualTo("CREATED");
+        // A young claim may belong to a write that has not reached its shard yet
+        assertThat(create("In Flight", "in.flight@shards.example.com").getStatusCode())
+                .isEqualTo(HttpStatus.BAD_REQUEST);
+        // An old claim of a patient that does have the email stays put
+        var held = create("Held", "held.long@shards.example.com").getBody();
+        jdbcTemplate.update("UPDATE patient_email SET claimed_at = now() - interval '1 hour' WHERE email = ?",
+                held.email());
+        assertThat(create("Held Twin", "held.long@shards.example.com").getStatusCode())
+                .isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void shouldImportPatientsOntoTheirShards() throws InterruptedException {
+        var csv = new StringBuilder("name,email,address,dateOfBirth,dateOfRegistration\n");
+        for (int i = 0; i < 6; i++) {
+            csv.append("Imported %d,imported.%d@shards.example.com,1 Import Rd,1990-01-01,\n".formatted(i, i));
+        }
+        csv.append("Imported Twin,imported.0@shards.example.com,2 Import Rd,1990-01-01,\n");
+        var body = new LinkedMultiValueMap<String, Object>();
+        body.add("file", new ByteArrayResource(csv.toString().getBytes(StandardCharsets.UTF_8)) {
+            @Override
+            public String getFilename() {
+                return "roster.csv";
+            }
+        });
+        var headers = new HttpHeaders();
+        headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+        var accepted = restTemplate.postForEntity(
+                API_ROOT_URL + "/imports", new HttpEntity<>(body, headers), String.class);
+        assertThat(accepted.getStatusCode()).isEqualTo(HttpStatus.ACCEPTED);
+
+        String state = "QUEUED";
+        ResponseEntity<String> status = null;
+        for (int attempt = 0; attempt < 50 && !state.equals("COMPLETED"); attempt++) {
+            Thread.sleep(100);
+            status = restTemplate.getForEntity(accepted.getHeaders().getLocation(), String.class);
+            state = JsonPath.parse(status.getBody()).read("$.state");
+        }
+        assertThat(state).isEqualTo("COMPLETED");
+        assertThat(JsonPath.parse(status.getBody()).read("$.rowsCreated", Integer.class)).isEqualTo(6);
+        assertThat(JsonPath.parse(status.getBody()).read("$.rowsRejected", Integer.class)).isEqualTo(1);
+        for (int i = 0; i < 6; i++) {
+            var byEmail = API_ROOT_URL + "/by-email?email=imported." + i + "@shards.example.com";
+            assertThat(restTemplate.getForEntity(byEmail, String.class).getStatusCode()).isEqualTo(HttpStatus.OK);
+        }
+    }
+
+    @Test
+    void shouldBulkDeleteOnEveryShardAndFreeTheEmails() {
+        var shards = new HashSet<Integer>();
+        for (int i = 0; i < 8; i++) {
+            var created = restTemplate.postForEntity(API_ROOT_URL, request("Retired " + i,
+                    "retired." + i + "@shards.example.com", "1 Old Rd", LocalDate.of(2001, 1, 1)),
+                    PatientResponseDTO.class);
+            shards.add(patientShards.shardOf(created.getBody().id()));
+        }
+        assertThat(shards).hasSizeGreaterThan(1);
+
+        var deleted = restTemplate.exchange(API_ROOT_URL + "?registeredBefore=2002-01-01", HttpMethod.DELETE,
+                null, String.class);
+        assertThat(deleted.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(JsonPath.parse(deleted.getBody()).read("$.deleted", Integer.class)).isEqualTo(8);
+        for (int i = 0; i < 8; i++) {
+            assertThat(create("Returning " + i, "retired." + i + "@shards.example.com").getStatusCode())
+                    .isEqualTo(HttpStatus.CREATED);
+        }
+    }
+
+    @Test
+    void shouldRefuseTheChangeLogWhichHasNoSinglePosition() {
+        var changes = restTemplate.getForEntity(API_ROOT_URL + "/changes", String.class);
+        assertThat(changes.getStatusCode()).isEqualTo(HttpStatus.NOT_IMPLEMENTED);
+        assertThat(changes.getBody()).contains("change log");
+    }
+}
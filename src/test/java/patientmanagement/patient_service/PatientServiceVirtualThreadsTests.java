@@ -0,0 +1,88 @@
+package patientmanagement.patient_service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.Advised;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Runs the API in virtual-thread mode with a deliberately small pool, so
+ * concurrent requests have to queue on the DatabaseConcurrencyLimiter.
+ */
+@Import(TestcontainersConfiguration.class)
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT, properties = {
+        "spring.threads.virtual.enabled=true",
+        "spring.datasource.hikari.maximum-pool-size=2",
+        "patients.virtual-threads.permit-timeout=10s" })
+class PatientServiceVirtualThreadsTests {
+
+    @Autowired
+    TestRestTemplate restTemplate;
+
+    @Autowired
+    ApplicationContext applicationContext;
+
+    @Autowired
+    PatientService patientService;
+
+    @Test
+    void shouldLimitServiceCallsToThePoolSize() {
+        assertThat(applicationContext.getBeansOfType(DatabaseConcurrencyLimiter.class)).hasSize(1);
+        assertThat(patientService).isInstanceOf(Advised.class);
+        assertThat(((Advised) patientService).getAdvisors())
+                .extracting(advisor -> advisor.getAdvice().toString())
+                .anyMatch(advice -> advice.contains("DatabaseConcurrencyLimiter.limit"));
+    }
+
+    @Test
+    void shouldServeCacheHitsWhileEveryPermitIsTaken() throws Exception {
+        var url = "/api/v1/patients/123e4567-e89b-12d3-a456-426614174002";
+        assertThat(restTemplate.getForEntity(url, String.class).getStatusCode()).isEqualTo(HttpStatus.OK);
+        var limiter = applicationContext.getBean(DatabaseConcurrencyLimiter.class);
+        var held = new CountDownLatch(2);
+        var release = new CountDownLatch(1);
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 2; i++) {
+                executor.submit(() -> limiter.withPermit("test", () -> {
+                    held.countDown();
+                    try {
+                        return release.await(1, TimeUnit.MINUTES);
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }));
+            }
+            held.await();
+            var started = System.nanoTime();
+            assertThat(restTemplate.getForEntity(url, String.class).getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(Duration.ofNanos(System.nanoTime() - started)).isLessThan(Duration.ofSeconds(5));
+            release.countDown();
+        }
+    }
+
+    @Test
+    void shouldServeConcurrentRequestsThroughTheLimiter() throws Exception {
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            var responses = IntStream.range(0, 50)
+                    .mapToObj(i -> executor.submit(
+                            () -> restTemplate.getForEntity("/api/v1/patients?size=2", String.class)))
+                    .toList();
+            for (var response : responses) {
+                assertThat(response.get().getStatusCode()).isEqualTo(HttpStatus.OK);
+            }
+        }
+    }
+}
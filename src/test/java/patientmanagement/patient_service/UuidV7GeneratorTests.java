@@ -0,0 +1,34 @@
+package patientmanagement.patient_service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+class UuidV7GeneratorTests {
+
+    @Test
+    void shouldCarryVersionVariantAndCurrentTime() {
+        var before = System.currentTimeMillis();
+        var uuid = UuidV7Generator.next();
+        var after = System.currentTimeMillis();
+
+        assertThat(uuid.version()).isEqualTo(7);
+        assertThat(uuid.variant()).isEqualTo(2);
+        assertThat(uuid.getMostSignificantBits() >>> 16).isBetween(before, after);
+    }
+
+    @Test
+    void shouldBeUniqueAndOrderedInsideOneMillisecond() {
+        var ids = new ArrayList<UUID>();
+        for (int i = 0; i < 10_000; i++) { // more than the 4096 counter values of a millisecond
+            ids.add(UuidV7Generator.next());
+        }
+        assertThat(new HashSet<>(ids)).hasSize(ids.size());
+        assertThat(ids).isSortedAccordingTo(Comparator.comparingLong(UUID::getMostSignificantBits));
+    }
+}
@@ -1,13 +1,4 @@
--- Ensure the 'patient' table exists
-CREATE TABLE IF NOT EXISTS patient
-(
-    id                      UUID PRIMARY KEY,
-    name                    VARCHAR(255)        NOT NULL,
-    email                   VARCHAR(255) UNIQUE NOT NULL,
-    address                 VARCHAR(255)        NOT NULL,
-    date_of_birth           DATE                NOT NULL,
-    date_of_registration    DATE                NOT NULL
-);
+-- Fixture patients the integration tests assert on
 
 INSERT INTO patient (id, name, email, address, date_of_birth, date_of_registration)
 SELECT '123e4567-e89b-12d3-a456-426614174002',